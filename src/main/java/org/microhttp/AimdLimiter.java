@@ -0,0 +1,71 @@
+package org.microhttp;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter based on additive-increase, multiplicative-decrease (AIMD).
+ * <p>
+ * The limit grows by one for every response that arrives within the latency threshold while at least half the
+ * permits are in use. The limit shrinks by the backoff ratio for every response that exceeds the latency threshold.
+ * The limit always stays within the minimum and maximum bounds.
+ */
+public class AimdLimiter implements ConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThreshold;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight;
+
+    public AimdLimiter() {
+        this(20, 1, 1_000, 0.9, Duration.ofSeconds(1));
+    }
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, Duration latencyThreshold) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThreshold = latencyThreshold.toNanos();
+        this.limit = new AtomicInteger(initialLimit);
+        this.inFlight = new AtomicInteger();
+    }
+
+    public int limit() {
+        return limit.get();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public boolean acquire() {
+        int n;
+        do {
+            n = inFlight.get();
+            if (n >= limit.get()) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(n, n + 1));
+        return true;
+    }
+
+    @Override
+    public void release(long latencyNanos) {
+        int n = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThreshold) {
+            limit.updateAndGet(l -> Math.max(minLimit, (int) (l * backoffRatio)));
+        } else if (n * 2 >= limit.get()) {
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    @Override
+    public void abandon() {
+        inFlight.decrementAndGet();
+    }
+
+}
@@ -0,0 +1,39 @@
+package org.microhttp;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * HTTP request handler that produces responses as a {@link CompletionStage}.
+ * <p>
+ * The stage may complete on any thread. Stages that complete exceptionally produce a 500 response.
+ * If the stage is also a {@link Future}, it is cancelled when the request context is cancelled.
+ */
+@FunctionalInterface
+public interface AsyncHandler extends Handler {
+
+    Response INTERNAL_SERVER_ERROR = new Response(500, "Internal Server Error", List.of(), new byte[0]);
+
+    /**
+     * Handle HTTP request.
+     * This method is called on the event loop thread. It must be non-blocking!
+     */
+    CompletionStage<Response> handleAsync(Request request, Context context);
+
+    @Override
+    default void handle(Request request, Context context, Consumer<Response> callback) {
+        CompletionStage<Response> stage = handleAsync(request, context);
+        if (stage instanceof Future<?> future) {
+            context.onCancel(() -> future.cancel(false));
+        }
+        stage.whenComplete((response, error) -> callback.accept(error == null ? response : INTERNAL_SERVER_ERROR));
+    }
+
+    @Override
+    default void handle(Request request, Consumer<Response> callback) {
+        handle(request, new Context(), callback);
+    }
+
+}
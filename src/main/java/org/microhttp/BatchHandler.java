@@ -0,0 +1,35 @@
+package org.microhttp;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * HTTP request handler that receives pipelined requests in batches.
+ * <p>
+ * When a request is dispatched, every complete request pipelined behind it on the same connection
+ * is dispatched along with it. Batches allow backend lookups, such as multi-get from a cache,
+ * to be combined at high pipelining depth.
+ * <p>
+ * Streaming responses are not supported in batches. A batch containing one closes the connection.
+ */
+@FunctionalInterface
+public interface BatchHandler extends Handler {
+
+    /**
+     * Handle a batch of one or more HTTP requests from the same connection, in arrival order.
+     * This method is called on the event loop thread. It must be non-blocking!
+     * The callee must invoke the callback once and only once, with exactly one response per request, in the same order.
+     */
+    void handleBatch(List<Request> requests, Context context, Consumer<List<Response>> callback);
+
+    @Override
+    default void handle(Request request, Context context, Consumer<Response> callback) {
+        handleBatch(List.of(request), context, responses -> callback.accept(responses.get(0)));
+    }
+
+    @Override
+    default void handle(Request request, Consumer<Response> callback) {
+        handle(request, new Context(), callback);
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.microhttp;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BufferPool is a cache of byte arrays organized in power-of-two size classes.
+ * Each {@link ConnectionEventLoop} has its own pool. Connections borrow arrays to hold request bytes
+ * and serialized responses, and release them when idle or closed.
+ * <p>
+ * Released arrays are retained for reuse until the total size of retained arrays reaches the pool capacity.
+ * Beyond that point, released arrays are left to the garbage collector.
+ * <p>
+ * BufferPool is not thread-safe. Only the owning event loop thread may borrow and release arrays.
+ * Usage metrics may be read from any thread.
+ */
+class BufferPool {
+
+    private static final int MIN_SIZE_CLASS = 10; // 1 KB
+    private static final int MAX_SIZE_CLASS = 30; // 1 GB
+
+    private final long capacity;
+    private final ArrayDeque<byte[]>[] free;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong releases = new AtomicLong();
+    private final AtomicLong borrowedBytes = new AtomicLong();
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BufferPool(long capacity) {
+        this.capacity = capacity;
+        free = new ArrayDeque[MAX_SIZE_CLASS + 1];
+        for (int i = MIN_SIZE_CLASS; i <= MAX_SIZE_CLASS; i++) {
+            free[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Borrow an array with a length of at least the provided size.
+     */
+    byte[] borrow(int size) {
+        borrows.incrementAndGet();
+        int sizeClass = sizeClass(size);
+        byte[] array = sizeClass > MAX_SIZE_CLASS ? null : free[sizeClass].poll();
+        if (array == null) {
+            allocations.incrementAndGet();
+            array = new byte[sizeClass > MAX_SIZE_CLASS ? size : 1 << sizeClass];
+        } else {
+            pooledBytes.addAndGet(-array.length);
+        }
+        borrowedBytes.addAndGet(array.length);
+        return array;
+    }
+
+    /**
+     * Return an array previously obtained from {@link #borrow(int)}.
+     */
+    void release(byte[] array) {
+        releases.incrementAndGet();
+        borrowedBytes.addAndGet(-array.length);
+        int sizeClass = sizeClass(array.length);
+        if (array.length == 1 << sizeClass && sizeClass <= MAX_SIZE_CLASS
+                && pooledBytes.get() + array.length <= capacity) {
+            free[sizeClass].push(array);
+            pooledBytes.addAndGet(array.length);
+        }
+    }
+
+    BufferPoolStats stats() {
+        return new BufferPoolStats(
+                borrows.get(),
+                allocations.get(),
+                releases.get(),
+                borrowedBytes.get(),
+                pooledBytes.get());
+    }
+
+    private static int sizeClass(int size) {
+        return size <= 1 << MIN_SIZE_CLASS ? MIN_SIZE_CLASS : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+}
@@ -0,0 +1,23 @@
+package org.microhttp;
+
+/**
+ * Usage metrics for the buffer pools of an {@link EventLoop}.
+ *
+ * @param borrows       number of arrays borrowed by connections
+ * @param allocations   number of borrows that required a new array, rather than a pooled one
+ * @param releases      number of arrays returned by connections
+ * @param borrowedBytes total length of arrays currently held by connections
+ * @param pooledBytes   total length of arrays currently retained by pools for reuse
+ */
+public record BufferPoolStats(long borrows, long allocations, long releases, long borrowedBytes, long pooledBytes) {
+
+    BufferPoolStats plus(BufferPoolStats other) {
+        return new BufferPoolStats(
+                borrows + other.borrows,
+                allocations + other.allocations,
+                releases + other.releases,
+                borrowedBytes + other.borrowedBytes,
+                pooledBytes + other.pooledBytes);
+    }
+
+}
@@ -1,5 +1,6 @@
 package org.microhttp;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,14 +16,28 @@ class ByteMerger {
     }
 
     byte[] merge() {
+        byte[] result = new byte[sumOfLengths()];
+        copyTo(result);
+        return result;
+    }
+
+    /**
+     * Merge into an array borrowed from the provided pool. The returned buffer wraps the borrowed array,
+     * with a limit equal to the merged size.
+     */
+    ByteBuffer merge(BufferPool pool) {
         int size = sumOfLengths();
-        byte[] result = new byte[size];
+        byte[] result = pool.borrow(size);
+        copyTo(result);
+        return ByteBuffer.wrap(result, 0, size);
+    }
+
+    private void copyTo(byte[] result) {
         int offset = 0;
         for (byte[] array : arrays) {
             System.arraycopy(array, 0, result, offset, array.length);
             offset += array.length;
         }
-        return result;
     }
 
     int sumOfLengths() {
@@ -1,19 +1,44 @@
 package org.microhttp;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 
 /**
  * ByteTokenizer is an expandable, first-in first-out byte array that supports tokenization.
  * Bytes are added at the tail and tokenization occurs at the head.
+ * <p>
+ * The backing array is used as a ring buffer. Consuming tokens advances the head index and adding
+ * bytes advances the tail index, so bytes are never shifted. Bytes are only copied when a token is extracted
+ * (in two pieces when the token wraps around the end of the array) or when the array must grow.
+ * <p>
+ * An empty tokenizer may also be attached to an external buffer, such as the direct buffer of an event loop,
+ * to tokenize bytes in place. Only the bytes left unconsumed are copied into the backing array upon detachment.
+ * <p>
+ * Backing arrays are borrowed from a {@link BufferPool}, if one is provided, and returned when released.
  */
 class ByteTokenizer {
-    private byte[] array = new byte[0];
-    private int position;
-    private int size;
+    private static final byte[] EMPTY = new byte[0];
 
+    private final BufferPool pool;
+
+    private byte[] array = EMPTY;
+    private int head; // index of next unconsumed byte
+    private int count; // number of unconsumed bytes
+    private int consumed; // number of bytes consumed since last compaction
+    private ByteBuffer attached; // external buffer tokenized in place, if any
+
+    ByteTokenizer() {
+        this(null);
+    }
+
+    ByteTokenizer(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Number of bytes added since the last compaction, consumed or not.
+     */
     int size() {
-        return size;
+        return consumed + remaining();
     }
 
     int capacity() {
@@ -21,31 +46,83 @@ class ByteTokenizer {
     }
 
     int remaining() {
-        return size - position;
+        return attached != null ? attached.remaining() : count;
     }
 
+    /**
+     * Mark the start of a new request. Consumed bytes are forgotten, but no bytes are moved.
+     */
     void compact() {
-        array = Arrays.copyOfRange(array, position, size);
-        size = size - position;
-        position = 0;
+        consumed = 0;
+        if (count == 0) {
+            head = 0;
+        }
+    }
+
+    /**
+     * Drop the backing array if every byte has been consumed.
+     * Idle connections then hold no buffer space, regardless of the size of prior requests.
+     */
+    void release() {
+        if (attached == null && count == 0) {
+            free(array);
+            array = EMPTY;
+            head = 0;
+            consumed = 0;
+        }
+    }
+
+    /**
+     * Discard all unconsumed bytes and drop the backing array, as when the connection is closed.
+     */
+    void discard() {
+        attached = null;
+        count = 0;
+        release();
+    }
+
+    /**
+     * Tokenize the remaining bytes of the provided buffer in place, without copying them.
+     * The tokenizer must be empty. {@link #detach()} must be called before the buffer is reused.
+     */
+    void attach(ByteBuffer buffer) {
+        if (attached != null || count != 0) {
+            throw new IllegalStateException("tokenizer not empty");
+        }
+        attached = buffer;
+    }
+
+    /**
+     * Copy the unconsumed bytes of the attached buffer, if any, into the backing array
+     * and drop the reference to the attached buffer.
+     */
+    void detach() {
+        if (attached != null) {
+            ByteBuffer buffer = attached;
+            attached = null;
+            add(buffer);
+        }
     }
 
     void add(ByteBuffer buffer) {
         int bufferLen = buffer.remaining();
-        if (array.length - size < bufferLen) {
-            array = Arrays.copyOf(array, Math.max(size + bufferLen, array.length * 2));
+        if (array.length - count < bufferLen) {
+            grow(Math.max(count + bufferLen, array.length * 2));
+        } else if (count == 0) {
+            head = 0; // keep writes contiguous when nothing is buffered
         }
-        buffer.get(array, size, bufferLen);
-        size += bufferLen;
+        int tail = wrap(head + count);
+        int first = Math.min(bufferLen, array.length - tail);
+        buffer.get(array, tail, first);
+        buffer.get(array, 0, bufferLen - first);
+        count += bufferLen;
     }
 
     byte[] next(int length) {
-        if (size - position < length) {
+        if (remaining() < length) {
             return null;
         }
-        byte[] result = Arrays.copyOfRange(array, position, position + length);
-        position += length;
-        return result;
+        return take(length, 0);
     }
 
     byte[] next(byte[] delimiter) {
@@ -53,18 +130,67 @@ class ByteTokenizer {
         if (index < 0) {
             return null;
         }
-        byte[] result = Arrays.copyOfRange(array, position, index);
-        position = index + delimiter.length;
+        return take(index, delimiter.length);
+    }
+
+    private byte[] take(int length, int skip) {
+        byte[] result = new byte[length];
+        if (attached != null) {
+            attached.get(result);
+            attached.position(attached.position() + skip);
+        } else {
+            copyTo(result, length);
+            head = wrap(head + length + skip);
+            count -= length + skip;
+        }
+        consumed += length + skip;
         return result;
     }
 
+    private void grow(int newCapacity) {
+        byte[] newArray = pool == null ? new byte[newCapacity] : pool.borrow(newCapacity);
+        copyTo(newArray, count);
+        free(array);
+        array = newArray;
+        head = 0;
+    }
+
+    private void free(byte[] array) {
+        if (pool != null && array != EMPTY) {
+            pool.release(array);
+        }
+    }
+
+    private void copyTo(byte[] dest, int length) {
+        int first = Math.min(length, array.length - head);
+        System.arraycopy(array, head, dest, 0, first);
+        System.arraycopy(array, 0, dest, first, length - first);
+    }
+
+    private byte byteAt(int offset) {
+        return attached != null ? attached.get(attached.position() + offset) : array[wrap(head + offset)];
+    }
+
+    private int wrap(int index) {
+        return index >= array.length ? index - array.length : index;
+    }
+
     private int indexOf(byte[] delimiter) {
-        for (int i = position; i <= size - delimiter.length; i++) {
-            if (Arrays.equals(delimiter, 0, delimiter.length, array, i, i + delimiter.length)) {
+        for (int i = 0; i <= remaining() - delimiter.length; i++) {
+            if (matches(delimiter, i)) {
                 return i;
             }
         }
         return -1;
     }
 
+    private boolean matches(byte[] delimiter, int offset) {
+        for (int i = 0; i < delimiter.length; i++) {
+            if (byteAt(offset + i) != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
@@ -1,9 +1,9 @@
 package org.microhttp;
 
 /**
- * Task handle returned by {@link Scheduler} that facilitates task cancellation.
+ * Task handle returned by {@link Scheduler} and {@link EventLoopExecutor} that facilitates task cancellation.
  */
-interface Cancellable {
+public interface Cancellable {
 
     /**
      * Cancel scheduled task.
@@ -0,0 +1,151 @@
+package org.microhttp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * CoalescingHandler is a {@link Handler} decorator that collapses identical in-flight requests into one.
+ * <p>
+ * Requests are matched by a key function. The first request for a key is passed to the delegate handler.
+ * Requests with the same key that arrive before the delegate responds wait for that response,
+ * which is then delivered to every waiting callback. Requests for which the key function returns null
+ * are passed through to the delegate unchanged.
+ * <p>
+ * The default key is the URI of GET requests without credentials or content negotiation headers.
+ * Requests carrying Authorization, Cookie, Accept or Accept-Encoding may warrant different responses
+ * for the same URI, so they are passed through.
+ * <p>
+ * The delegate of a coalesced request receives a context bound to the event loop of the first request.
+ * That context is cancelled only once the contexts of all waiting requests are cancelled.
+ * CoalescingHandler is thread-safe and may be shared by all connection event loops of an {@link EventLoop}.
+ */
+public class CoalescingHandler implements ContextHandler {
+
+    private static final String METHOD_GET = "GET";
+    private static final List<String> VARYING_HEADERS = List.of("Authorization", "Cookie", "Accept", "Accept-Encoding");
+
+    private final Handler delegate;
+    private final Function<Request, Object> keyFunction;
+    private final ConcurrentHashMap<Object, Flight> inFlight;
+    private final AtomicLong coalesced;
+
+    public CoalescingHandler(Handler delegate) {
+        this(delegate, CoalescingHandler::defaultKey);
+    }
+
+    public CoalescingHandler(Handler delegate, Function<Request, Object> keyFunction) {
+        this.delegate = delegate;
+        this.keyFunction = keyFunction;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.coalesced = new AtomicLong();
+    }
+
+    private static Object defaultKey(Request request) {
+        if (!request.method().equals(METHOD_GET)) {
+            return null;
+        }
+        for (String name : VARYING_HEADERS) {
+            if (request.header(name) != null) {
+                return null;
+            }
+        }
+        return request.uri();
+    }
+
+    /**
+     * Number of requests answered with the response to another in-flight request.
+     */
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public void handle(Request request, Context context, Consumer<Response> callback) {
+        Object key = keyFunction.apply(request);
+        if (key == null) {
+            delegate.handle(request, context, callback);
+            return;
+        }
+        Flight created = new Flight(context);
+        Flight flight = inFlight.compute(key, (k, v) -> {
+            Flight f = v == null || v.context.cancelled() ? created : v; // abandoned flights are not joined
+            f.join(context, callback);
+            return f;
+        });
+        context.onCancel(flight::leave); // outside compute, as the listener runs inline if already cancelled
+        if (flight != created) {
+            coalesced.incrementAndGet();
+            return;
+        }
+        try {
+            delegate.handle(request, created.context, response -> complete(key, created, response));
+        } catch (RuntimeException e) {
+            // waiters that joined during the failed call are dispatched individually
+            if (created.complete()) {
+                inFlight.remove(key, created);
+                for (Waiter waiter : created.waiters.subList(1, created.waiters.size())) {
+                    delegate.handle(request, waiter.context(), waiter.callback());
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void complete(Object key, Flight flight, Response response) {
+        if (!flight.complete()) {
+            return; // delegate invoked the callback more than once
+        }
+        // removal is atomic with respect to compute, so no waiter can join after this point.
+        // the flight may already have been replaced after all its waiters were cancelled,
+        // but half-closed waiters still expect the response, so it is delivered regardless
+        inFlight.remove(key, flight);
+        for (Waiter waiter : flight.waiters) {
+            waiter.callback().accept(response);
+        }
+    }
+
+    private record Waiter(Context context, Consumer<Response> callback) {
+    }
+
+    /**
+     * Requests waiting on one delegate call, and the context passed to that call.
+     */
+    private static class Flight {
+        final List<Waiter> waiters;
+        final Context context;
+        int live; // waiters not yet cancelled, guarded by this
+        boolean completed; // guarded by this
+
+        Flight(Context first) {
+            waiters = new ArrayList<>();
+            context = new Context(first.executor());
+        }
+
+        synchronized void join(Context context, Consumer<Response> callback) {
+            waiters.add(new Waiter(context, callback));
+            live++;
+        }
+
+        synchronized boolean complete() {
+            if (completed) {
+                return false;
+            }
+            completed = true;
+            return true;
+        }
+
+        void leave() {
+            synchronized (this) {
+                if (--live > 0) {
+                    return;
+                }
+            }
+            context.cancel();
+        }
+    }
+
+}
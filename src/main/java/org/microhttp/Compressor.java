@@ -0,0 +1,222 @@
+package org.microhttp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compressor encodes response bodies with the gzip or deflate content coding.
+ * Each {@link ConnectionEventLoop} with compression enabled has its own compressor.
+ * <p>
+ * Deflater instances are pooled and reset after each use, so native compression memory is allocated
+ * once per loop rather than once per response. Deflaters beyond the pool capacity are ended immediately,
+ * and pooled deflaters are ended when the event loop terminates.
+ * <p>
+ * Only complete bodies of compressible content types at or above the size threshold are compressed.
+ * Bodies that do not shrink are sent as is. Compressor is not thread-safe.
+ */
+class Compressor {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_VARY = "Vary";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final int MAX_POOLED = 4; // per format
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final int threshold;
+    private final int level;
+    private final ArrayDeque<Deflater> rawDeflaters; // for gzip, which frames raw deflate data itself
+    private final ArrayDeque<Deflater> zlibDeflaters; // for deflate, which is zlib format
+
+    Compressor(int threshold, int level) {
+        this.threshold = threshold;
+        this.level = level;
+        this.rawDeflaters = new ArrayDeque<>();
+        this.zlibDeflaters = new ArrayDeque<>();
+    }
+
+    /**
+     * Content coding to apply for the provided Accept-Encoding header value, or null if none is acceptable.
+     * Gzip is preferred over deflate. Codings with a quality value of zero are not acceptable.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        Boolean gzip = null; // null if not listed
+        Boolean deflate = null;
+        boolean wildcard = false;
+        for (String element : acceptEncoding.split(",")) {
+            int semicolon = element.indexOf(';');
+            String coding = (semicolon < 0 ? element : element.substring(0, semicolon)).trim();
+            boolean acceptable = semicolon < 0 || !zeroQuality(element.substring(semicolon + 1));
+            if (coding.equalsIgnoreCase(GZIP)) {
+                gzip = acceptable;
+            } else if (coding.equalsIgnoreCase(DEFLATE)) {
+                deflate = acceptable;
+            } else if (coding.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        if (gzip != null ? gzip : wildcard) {
+            return GZIP;
+        }
+        return (deflate != null ? deflate : wildcard) ? DEFLATE : null;
+    }
+
+    private static boolean zeroQuality(String params) {
+        for (String param : params.split(";")) {
+            String p = param.trim();
+            if (p.startsWith("q=") || p.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(p.substring(2)) == 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Response to write in place of the provided response, given the negotiated content coding, which may be null.
+     * Eligible responses vary by Accept-Encoding whether or not they are compressed.
+     */
+    Response apply(Response response, String encoding) {
+        if (!eligible(response)) {
+            return response;
+        }
+        List<Header> headers = new ArrayList<>(response.headers().size() + 2);
+        int vary = -1; // index of the first Vary header, or -1 if none
+        boolean varies = false; // whether Accept-Encoding is already covered by Vary
+        for (Header header : response.headers()) {
+            if (header.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH)) { // length of compressed body differs
+                continue;
+            }
+            if (header.name().equalsIgnoreCase(HEADER_VARY)) {
+                vary = vary < 0 ? headers.size() : vary;
+                varies |= variesByEncoding(header.value());
+            }
+            headers.add(header);
+        }
+        if (vary < 0) {
+            headers.add(new Header(HEADER_VARY, ACCEPT_ENCODING));
+        } else if (!varies) {
+            Header header = headers.get(vary);
+            headers.set(vary, new Header(header.name(), header.value() + ", " + ACCEPT_ENCODING));
+        }
+        byte[] body = encoding == null ? null : compress(response.body(), encoding.equals(GZIP));
+        if (body == null) {
+            return new Response(response.status(), response.reason(), headers, response.body());
+        }
+        headers.add(new Header(HEADER_CONTENT_ENCODING, encoding));
+        return new Response(response.status(), response.reason(), headers, body);
+    }
+
+    private static boolean variesByEncoding(String vary) {
+        for (String element : vary.split(",")) {
+            String name = element.trim();
+            if (name.equals("*") || name.equalsIgnoreCase(ACCEPT_ENCODING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean eligible(Response response) {
+        if (response.streaming() || response.body().length < threshold || response.hasHeader(HEADER_CONTENT_ENCODING)) {
+            return false;
+        }
+        for (Header header : response.headers()) {
+            if (header.name().equalsIgnoreCase(HEADER_CONTENT_TYPE)) {
+                return compressible(header.value());
+            }
+        }
+        return false;
+    }
+
+    static boolean compressible(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        int semicolon = type.indexOf(';');
+        if (semicolon >= 0) {
+            type = type.substring(0, semicolon).trim();
+        }
+        return type.startsWith("text/")
+                || type.equals("application/json")
+                || type.equals("application/javascript")
+                || type.equals("application/xml")
+                || type.equals("image/svg+xml")
+                || type.endsWith("+json")
+                || type.endsWith("+xml");
+    }
+
+    /**
+     * Compressed body, or null if compression does not reduce its size.
+     */
+    byte[] compress(byte[] body, boolean gzip) {
+        ArrayDeque<Deflater> pool = gzip ? rawDeflaters : zlibDeflaters;
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, gzip);
+        }
+        try {
+            int offset = gzip ? GZIP_HEADER.length : 0;
+            int trailer = gzip ? GZIP_TRAILER_LENGTH : 0;
+            byte[] out = new byte[body.length]; // no use in output larger than the body
+            deflater.setInput(body);
+            deflater.finish();
+            int length = offset;
+            while (!deflater.finished() && length < out.length - trailer) {
+                length += deflater.deflate(out, length, out.length - trailer - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            if (gzip) {
+                System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                putIntLittleEndian(out, length, (int) crc.getValue());
+                putIntLittleEndian(out, length + 4, body.length);
+                length += GZIP_TRAILER_LENGTH;
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.reset();
+            if (pool.size() < MAX_POOLED) {
+                pool.push(deflater);
+            } else {
+                deflater.end();
+            }
+        }
+    }
+
+    private static void putIntLittleEndian(byte[] b, int offset, int value) {
+        b[offset] = (byte) value;
+        b[offset + 1] = (byte) (value >>> 8);
+        b[offset + 2] = (byte) (value >>> 16);
+        b[offset + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * End pooled deflaters, releasing their native memory.
+     */
+    void close() {
+        rawDeflaters.forEach(Deflater::end);
+        rawDeflaters.clear();
+        zlibDeflaters.forEach(Deflater::end);
+        zlibDeflaters.clear();
+    }
+
+}
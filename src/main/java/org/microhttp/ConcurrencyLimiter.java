@@ -0,0 +1,30 @@
+package org.microhttp;
+
+/**
+ * Limits the number of requests dispatched to the {@link Handler} concurrently.
+ * A single limiter is shared by all connection event loops, so implementations must be thread-safe.
+ * <p>
+ * Requests that cannot acquire a permit are rejected with a 503 Service Unavailable response
+ * without invoking the handler.
+ *
+ * @see AimdLimiter for a limiter that adapts to observed handler latency
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Attempt to acquire a permit for a request about to be dispatched.
+     * Returns false if the limit is reached.
+     */
+    boolean acquire();
+
+    /**
+     * Release a permit upon response, with the latency between dispatch and response in nanoseconds.
+     */
+    void release(long latencyNanos);
+
+    /**
+     * Release a permit without a latency sample, as when the connection closes before the response is ready.
+     */
+    void abandon();
+
+}
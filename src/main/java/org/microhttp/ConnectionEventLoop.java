@@ -4,22 +4,84 @@ import static org.microhttp.CloseUtils.closeQuietly;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
 
 /**
  * This class represents an independent, threaded event loop for managing a group of connections.
  * It has its own selector, direct off-heap byte buffer, timeout queue, task queue, and state-per-connection.
  * <p>
+ * Bytes buffered by connections are accounted against a {@link MemoryBudget} shared by all connection event loops.
+ * Write buffers that wrap shared cached responses are not counted. When the budget is exceeded, reads are paused
+ * for connections with partial requests, and complete requests are not dispatched until usage falls within budget.
+ * If no reads remain to pause, the connection holding the most bytes is closed, once per loop iteration,
+ * until usage falls within budget. Connections writing responses are never closed for the budget, since writing
+ * releases their buffers. Their write buffers are bounded only by the write timeout and minimum write rate.
+ * <p>
+ * Connections in the WRITABLE state are closed if no bytes can be written for the write timeout or
+ * if the average write rate falls below the minimum write rate, so slow consumers cannot hold buffers indefinitely.
+ * Likewise, connections in the READABLE state are closed if a request arrives below the minimum request rate,
+ * or if its header section exceeds the maximum header size or does not arrive within the header timeout.
+ * <p>
+ * Persistent connections waiting for a subsequent request are idle. Idle connections are closed after the idle timeout.
+ * They are also tracked in least-recently-used order, and the oldest idle connection is evicted when a new connection
+ * arrives at a loop that has reached its share of the maximum number of connections.
+ * <p>
+ * When a {@link ResponseCache} is configured, cache hits are answered from the event loop thread with
+ * pre-serialized bytes, without invoking the handler. Cached bytes are shared and never returned to the buffer pool.
+ * <p>
+ * Connections remain readable while a request is dispatched to the handler. Pipelined bytes are buffered
+ * without parsing, and a peer close cancels the {@link Context} of the request in flight.
+ * <p>
+ * The task queue and timeout queue are exposed to handlers through an {@link EventLoopExecutor},
+ * so handler continuations and timers run on the event loop thread of the connection.
+ * <p>
+ * A {@link BatchHandler} receives a dispatched request together with the complete requests pipelined behind it,
+ * and the batch of responses is written from a single write buffer.
+ * <p>
+ * Streaming response bodies are pulled from a {@link Flow.Publisher} one buffer at a time, only after the preceding
+ * buffer is written to the socket, and encoded with chunked transfer encoding.
+ * <p>
+ * When a handler accepts a WebSocket upgrade request with a {@link WebSocketHandler}, the connection carries
+ * WebSocket frames once the upgrade response is written, parsed from the byte tokenizer and written from the write buffer.
+ * Protocol errors are answered with a close frame carrying the status code of the error.
+ * <p>
+ * When an {@link SSLContext} is configured, connections complete a TLS handshake before entering the READABLE state,
+ * and bytes are decrypted and encrypted by a {@link TlsChannel} in place of the socket channel.
+ * Delegated handshake tasks run on the common fork-join pool, off the event loop thread.
+ * Decrypted input left buffered after a read is read again on the next loop iteration, without waiting on the selector.
+ * <p>
+ * When compression is enabled, complete HTTP 1.x response bodies are encoded by a {@link Compressor}
+ * owned by the event loop, with the content coding negotiated from the Accept-Encoding header of the request.
+ * Compressed responses are cached like any other, keyed by content coding.
+ * <p>
  * ConnectionEventLoop instances are managed by a parent EventLoop.
  *
  * <p>
@@ -50,35 +112,165 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 class ConnectionEventLoop {
 
+    @FunctionalInterface
+    private interface ResponseWriter {
+        void write() throws IOException;
+    }
+
+    /**
+     * Protocol spoken by a connection after it leaves HTTP/1.x. Callbacks run on the event loop thread.
+     */
+    private interface ProtocolSession {
+        void onData(); // bytes added to byte tokenizer
+
+        void onWriteComplete(); // write buffer fully written and released
+
+        void onConnectionClose();
+
+        long bufferedBytes(); // bytes held by the session beyond the byte tokenizer and write buffer
+    }
+
+    private static final Response SERVICE_UNAVAILABLE =
+            new Response(503, "Service Unavailable", List.of(), new byte[0]);
+
     private final Options options;
     private final Logger logger;
-    private final Handler handler;
     private final AtomicLong connectionCounter;
     private final AtomicBoolean stop;
+    private final MemoryBudget memoryBudget;
 
+    private final Clock clock;
     private final Scheduler timeoutQueue;
     private final Queue<Runnable> taskQueue;
     private final ByteBuffer buffer;
+    private final BufferPool bufferPool;
     private final Selector selector;
     private final Thread thread;
+    private final List<Connection> pausedConnections;
+    private final LinkedHashSet<Connection> idleConnections; // least-recently-used first
+    private final int maxConnections; // share of server-wide maximum
+    private final AtomicInteger connectionCount; // registered connections, updated by event loop thread
+    private final AtomicInteger idleCount; // idle connections, updated by event loop thread
+    private final AtomicInteger pendingCount; // accepted connections not yet registered
+    private final EventLoopExecutor executor; // task queue and scheduler exposed to handlers
+    private final AtomicBoolean wakeupPending; // selector wakeup issued and not yet observed by event loop thread
+    private final DirectBufferPool directBufferPool; // encrypted bytes of TLS connections, null if TLS disabled
+    private final Set<Connection> bufferedReads; // TLS connections with decrypted input buffered
+    private final Compressor compressor; // null if compression disabled
+
+    private long bufferedBytes; // bytes buffered by connections of this loop
+    private long publishedBytes; // bytes buffered as of last update to memory budget
 
     ConnectionEventLoop(
             Options options,
             Logger logger,
-            Handler handler,
             AtomicLong connectionCounter,
-            AtomicBoolean stop) throws IOException {
+            AtomicBoolean stop,
+            MemoryBudget memoryBudget) throws IOException {
         this.options = options;
         this.logger = logger;
-        this.handler = handler;
         this.connectionCounter = connectionCounter;
         this.stop = stop;
+        this.memoryBudget = memoryBudget;
 
-        timeoutQueue = new Scheduler();
+        clock = new SystemClock();
+        timeoutQueue = new Scheduler(clock);
         taskQueue = new ConcurrentLinkedQueue<>();
         buffer = ByteBuffer.allocateDirect(options.readBufferSize());
+        bufferPool = new BufferPool(options.bufferPoolCapacity());
         selector = Selector.open();
         thread = new Thread(this::run, "connection-event-loop");
+        pausedConnections = new ArrayList<>();
+        idleConnections = new LinkedHashSet<>();
+        maxConnections = options.maxConnections() / options.concurrency()
+                + (options.maxConnections() % options.concurrency() == 0 ? 0 : 1);
+        connectionCount = new AtomicInteger();
+        idleCount = new AtomicInteger();
+        pendingCount = new AtomicInteger();
+        executor = new LoopExecutor();
+        wakeupPending = new AtomicBoolean();
+        directBufferPool = options.sslContext() == null ? null : newDirectBufferPool(options);
+        bufferedReads = new LinkedHashSet<>();
+        compressor = options.compression()
+                ? new Compressor(options.compressionThreshold(), options.compressionLevel())
+                : null;
+    }
+
+    private static DirectBufferPool newDirectBufferPool(Options options) {
+        SSLSession session = options.sslContext().createSSLEngine().getSession();
+        int size = Math.max(session.getPacketBufferSize(), session.getApplicationBufferSize());
+        return new DirectBufferPool(size, options.bufferPoolCapacity());
+    }
+
+    private class LoopExecutor implements EventLoopExecutor {
+        @Override
+        public void execute(Runnable task) {
+            taskQueue.add(() -> runTask(task));
+            // as with responses, tasks submitted on the event loop thread run at the end of the current iteration
+            if (!inEventLoop()) {
+                wakeup();
+            }
+        }
+
+        @Override
+        public Cancellable schedule(Runnable task, Duration delay) {
+            ScheduledTask scheduled = new ScheduledTask(task);
+            if (inEventLoop()) {
+                scheduled.start(delay);
+            } else {
+                execute(() -> scheduled.start(delay));
+            }
+            return scheduled;
+        }
+
+        @Override
+        public boolean inEventLoop() {
+            return Thread.currentThread() == thread;
+        }
+    }
+
+    /**
+     * Handler task in the timeout queue. Cancellation from other threads marks the task,
+     * since the timeout queue may only be modified by the event loop thread.
+     */
+    private class ScheduledTask implements Cancellable {
+        final Runnable task;
+        volatile boolean cancelled;
+        Cancellable timeout;
+
+        ScheduledTask(Runnable task) {
+            this.task = task;
+        }
+
+        void start(Duration delay) {
+            if (!cancelled) {
+                timeout = timeoutQueue.schedule(this::run, delay);
+            }
+        }
+
+        void run() {
+            if (!cancelled) {
+                runTask(task);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (timeout != null && executor.inEventLoop()) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            if (logger.enabled()) {
+                logger.log(e, new LogEntry("event", "task_error"));
+            }
+        }
     }
 
     private class Connection {
@@ -87,26 +279,124 @@ class ConnectionEventLoop {
 
         static final String HEADER_CONNECTION = "Connection";
         static final String HEADER_CONTENT_LENGTH = "Content-Length";
+        static final String HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
+        static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+        static final String CHUNKED = "chunked";
+        static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes();
 
         static final String KEEP_ALIVE = "Keep-Alive";
 
+        static final String ALPN_HTTP_2 = "h2";
+        static final String ALPN_HTTP_1_1 = "http/1.1";
+
+        static final long NANOS_PER_SECOND = 1_000_000_000L;
+        static final long RATE_GRACE_PERIOD = NANOS_PER_SECOND; // rates are enforced after one second
+
         final SocketChannel socketChannel;
+        final Handler handler; // handler of listener that accepted the connection
+        final TlsChannel tls; // null if TLS disabled
+        final ByteChannel channel; // plaintext bytes, the TLS channel or the socket channel itself
         final SelectionKey selectionKey;
         final ByteTokenizer byteTokenizer;
         final String id;
         RequestParser requestParser;
         ByteBuffer writeBuffer;
+        boolean writeBufferPooled; // false if write buffer wraps a cached response shared by connections
         Cancellable requestTimeoutTask;
+        Cancellable headerTimeoutTask;
+        Cancellable writeTimeoutTask;
+        boolean requestStarted;
+        boolean dispatchPaused; // complete request parsed, dispatch deferred until usage falls within budget
+        long requestStartTime;
+        long writeStartTime;
+        long writtenBytes;
+        long bufferedBytes;
         boolean httpOneDotZero;
         boolean keepAlive;
+        boolean idle;
+        boolean closed;
+        boolean permitHeld; // concurrency limiter permit acquired for request in flight
+        long dispatchTime;
+        ResponseCache.Key cacheKey; // key of request in flight, if eligible for caching
+        String contentEncoding; // content coding negotiated for request in flight, null if none
+        Request upgradeRequest; // request in flight, if a valid WebSocket upgrade request
+        Context context; // context of request dispatched to handler, awaiting response
+        BodySubscriber bodySubscriber; // subscriber to body of streaming response being written
+        ProtocolSession session; // set upon upgrade, connection carries WebSocket or HTTP/2 frames thereafter
+        boolean handshaking; // TLS handshake in progress
 
-        private Connection(SocketChannel socketChannel, SelectionKey selectionKey) throws IOException {
+        private Connection(SocketChannel socketChannel, Handler handler, SelectionKey selectionKey) throws IOException {
             this.socketChannel = socketChannel;
+            this.handler = handler;
             this.selectionKey = selectionKey;
-            byteTokenizer = new ByteTokenizer();
+            SSLContext sslContext = options.sslContext();
+            if (sslContext != null) {
+                SSLEngine engine = sslContext.createSSLEngine();
+                engine.setUseClientMode(false);
+                engine.setHandshakeApplicationProtocolSelector((e, protocols) ->
+                        options.http2() && protocols.contains(ALPN_HTTP_2) ? ALPN_HTTP_2
+                                : protocols.contains(ALPN_HTTP_1_1) ? ALPN_HTTP_1_1
+                                : ""); // empty string omits ALPN extension rather than failing handshake
+                engine.beginHandshake();
+                tls = new TlsChannel(socketChannel, engine, directBufferPool);
+                channel = tls;
+                handshaking = true;
+            } else {
+                tls = null;
+                channel = socketChannel;
+            }
+            byteTokenizer = new ByteTokenizer(bufferPool);
             id = Long.toString(connectionCounter.getAndIncrement());
             requestParser = new RequestParser(byteTokenizer);
             requestTimeoutTask = timeoutQueue.schedule(this::onRequestTimeout, options.requestTimeout());
+            connectionCount.incrementAndGet();
+        }
+
+        private void onHandshake() {
+            try {
+                doOnHandshake();
+            } catch (IOException | RuntimeException e) {
+                if (logger.enabled()) {
+                    logger.log(e,
+                            new LogEntry("event", "tls_handshake_error"),
+                            new LogEntry("id", id));
+                }
+                failSafeClose();
+            }
+        }
+
+        private void doOnHandshake() throws IOException {
+            switch (tls.handshake()) {
+                case READ -> selectionKey.interestOps(SelectionKey.OP_READ);
+                case WRITE -> selectionKey.interestOps(SelectionKey.OP_WRITE);
+                case TASK -> {
+                    selectionKey.interestOps(0);
+                    ForkJoinPool.commonPool().execute(() -> {
+                        tls.runDelegatedTasks();
+                        executor.execute(() -> {
+                            if (!closed) {
+                                onHandshake();
+                            }
+                        });
+                    });
+                }
+                case DONE -> {
+                    handshaking = false;
+                    if (logger.enabled()) {
+                        SSLEngine engine = tls.engine();
+                        logger.log(
+                                new LogEntry("event", "tls_handshake"),
+                                new LogEntry("id", id),
+                                new LogEntry("protocol", engine.getSession().getProtocol()),
+                                new LogEntry("application_protocol", String.valueOf(engine.getApplicationProtocol())));
+                    }
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                    if (tls.inputReady()) { // request arrived with final handshake message
+                        onReadable();
+                    }
+                }
+            }
         }
 
         private void onRequestTimeout() {
@@ -118,9 +408,76 @@ class ConnectionEventLoop {
             failSafeClose();
         }
 
+        private void onIdleTimeout() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "idle_timeout"),
+                        new LogEntry("id", id));
+            }
+            failSafeClose();
+        }
+
+        private void onEvict() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "idle_evict"),
+                        new LogEntry("id", id));
+            }
+            failSafeClose();
+        }
+
+        private void enterIdle() {
+            idle = true;
+            idleConnections.add(this);
+            idleCount.set(idleConnections.size());
+            requestTimeoutTask = timeoutQueue.schedule(this::onIdleTimeout, options.idleTimeout());
+        }
+
+        private void leaveIdle() {
+            idle = false;
+            idleConnections.remove(this);
+            idleCount.set(idleConnections.size());
+        }
+
+        private void onStreamTimeout() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "stream_timeout"),
+                        new LogEntry("id", id));
+            }
+            failSafeClose();
+        }
+
+        private void onHeaderTimeout() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "header_timeout"),
+                        new LogEntry("id", id),
+                        new LogEntry("request_size", Integer.toString(byteTokenizer.size())));
+            }
+            failSafeClose();
+        }
+
+        private void onWriteTimeout() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "write_timeout"),
+                        new LogEntry("id", id),
+                        new LogEntry("num_bytes", Long.toString(writtenBytes)));
+            }
+            failSafeClose();
+        }
+
         private void onReadable() {
+            if (handshaking) {
+                onHandshake();
+                return;
+            }
             try {
                 doOnReadable();
+                if (tls != null && !closed && tls.inputReady()) {
+                    bufferedReads.add(this);
+                }
             } catch (IOException | RuntimeException e) {
                 if (logger.enabled()) {
                     logger.log(e,
@@ -133,7 +490,21 @@ class ConnectionEventLoop {
 
         private void doOnReadable() throws IOException {
             buffer.clear();
-            int numBytes = socketChannel.read(buffer);
+            int numBytes = channel.read(buffer);
+            if (numBytes == 0) { // nothing decrypted, as with partial TLS record
+                return;
+            }
+            if (numBytes >= 0 && session != null) {
+                buffer.flip();
+                byteTokenizer.add(buffer);
+                account();
+                session.onData();
+                return;
+            }
+            if (numBytes < 0 && context != null) { // client closed its end while request in flight
+                cancelRequest();
+                return;
+            }
             if (numBytes < 0) {
                 if (logger.enabled()) {
                     logger.log(
@@ -144,7 +515,29 @@ class ConnectionEventLoop {
                 return;
             }
             buffer.flip();
-            byteTokenizer.add(buffer);
+            if (context != null || bodySubscriber != null) { // request or stream in flight, buffer pipelined bytes without parsing
+                byteTokenizer.add(buffer);
+                account();
+                if (byteTokenizer.size() > options.maxRequestSize()) {
+                    selectionKey.interestOps(0); // reading resumes once response is written
+                }
+                return;
+            }
+            if (idle) { // subsequent request arriving on persistent connection
+                leaveIdle();
+                requestTimeoutTask.cancel();
+                requestTimeoutTask = timeoutQueue.schedule(this::onRequestTimeout, options.requestTimeout());
+            }
+            if (!requestStarted) {
+                requestStarted = true;
+                requestStartTime = clock.nanoTime();
+                headerTimeoutTask = timeoutQueue.schedule(this::onHeaderTimeout, options.headerTimeout());
+            }
+            if (byteTokenizer.remaining() == 0) {
+                byteTokenizer.attach(buffer); // nothing buffered, parse directly from read buffer
+            } else {
+                byteTokenizer.add(buffer);
+            }
             if (logger.enabled()) {
                 logger.log(
                         new LogEntry("event", "read_bytes"),
@@ -152,14 +545,24 @@ class ConnectionEventLoop {
                         new LogEntry("read_bytes", Integer.toString(numBytes)),
                         new LogEntry("request_bytes", Integer.toString(byteTokenizer.remaining())));
             }
-            if (requestParser.parse()) {
+            boolean parsed = requestParser.parse();
+            byteTokenizer.detach(); // retain unconsumed tail, read buffer is reused for writes
+            account();
+            if (headerTimeoutTask != null && requestParser.headersParsed()) {
+                headerTimeoutTask.cancel();
+                headerTimeoutTask = null;
+            }
+            if (exceedsMaxHeaderSize()) {
+                return;
+            }
+            if (parsed) {
                 if (logger.enabled()) {
                     logger.log(
                             new LogEntry("event", "read_request"),
                             new LogEntry("id", id),
                             new LogEntry("request_bytes", Integer.toString(byteTokenizer.remaining())));
                 }
-                onParseRequest();
+                dispatchOrPause();
             } else {
                 if (byteTokenizer.size() > options.maxRequestSize()) {
                     if (logger.enabled()) {
@@ -169,8 +572,125 @@ class ConnectionEventLoop {
                                 new LogEntry("request_size", Integer.toString(byteTokenizer.size())));
                     }
                     failSafeClose();
+                } else if (belowMinRequestRate()) {
+                    if (logger.enabled()) {
+                        logger.log(
+                                new LogEntry("event", "request_rate_close"),
+                                new LogEntry("id", id),
+                                new LogEntry("request_size", Integer.toString(byteTokenizer.size())));
+                    }
+                    failSafeClose();
+                } else if (overBudget()) {
+                    pauseReading();
+                }
+            }
+        }
+
+        private boolean exceedsMaxHeaderSize() {
+            if (requestParser.headerSize() <= options.maxHeaderSize()) {
+                return false;
+            }
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "exceed_header_max_close"),
+                        new LogEntry("id", id),
+                        new LogEntry("header_size", Integer.toString(requestParser.headerSize())));
+            }
+            failSafeClose();
+            return true;
+        }
+
+        private boolean belowMinRequestRate() {
+            long elapsed = clock.nanoTime() - requestStartTime;
+            return options.minRequestRate() > 0
+                    && elapsed >= RATE_GRACE_PERIOD
+                    && byteTokenizer.size() * NANOS_PER_SECOND / elapsed < options.minRequestRate();
+        }
+
+        /**
+         * Pause reading a partial request until usage falls within budget.
+         */
+        private void pauseReading() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "read_pause"),
+                        new LogEntry("id", id),
+                        new LogEntry("request_size", Integer.toString(byteTokenizer.size())));
+            }
+            selectionKey.interestOps(0);
+            pausedConnections.add(this);
+        }
+
+        /**
+         * Dispatch the parsed request, unless usage exceeds budget, since its response adds another write buffer.
+         * Deferred requests are dispatched once usage falls within budget, or closed after the request timeout.
+         */
+        private void dispatchOrPause() {
+            if (!overBudget()) {
+                onParseRequest();
+                return;
+            }
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "dispatch_pause"),
+                        new LogEntry("id", id));
+            }
+            selectionKey.interestOps(0);
+            dispatchPaused = true;
+            if (requestTimeoutTask == null) { // pipelined request
+                requestTimeoutTask = timeoutQueue.schedule(this::onRequestTimeout, options.requestTimeout());
+            }
+            pausedConnections.add(this);
+        }
+
+        private void resume() {
+            if (!dispatchPaused) {
+                resumeReading();
+                return;
+            }
+            dispatchPaused = false;
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "dispatch_resume"),
+                        new LogEntry("id", id));
+            }
+            try {
+                onParseRequest();
+            } catch (RuntimeException e) {
+                if (logger.enabled()) {
+                    logger.log(e,
+                            new LogEntry("event", "dispatch_error"),
+                            new LogEntry("id", id));
                 }
+                failSafeClose();
+            }
+        }
+
+        private void resumeReading() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "read_resume"),
+                        new LogEntry("id", id));
+            }
+            selectionKey.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void onExceedBudget() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "exceed_budget_close"),
+                        new LogEntry("id", id),
+                        new LogEntry("buffered_bytes", Long.toString(bufferedBytes)));
             }
+            failSafeClose();
+        }
+
+        private void account() {
+            long size = byteTokenizer.capacity()
+                    + (writeBuffer != null && writeBufferPooled ? writeBuffer.capacity() : 0) // shared arrays excluded
+                    + (session != null ? session.bufferedBytes() : 0);
+            ConnectionEventLoop.this.bufferedBytes += size - bufferedBytes;
+            bufferedBytes = size;
         }
 
         private void onParseRequest() {
@@ -181,22 +701,153 @@ class ConnectionEventLoop {
                 requestTimeoutTask.cancel();
                 requestTimeoutTask = null;
             }
+            if (headerTimeoutTask != null) {
+                headerTimeoutTask.cancel();
+                headerTimeoutTask = null;
+            }
+            requestStarted = false;
             Request request = requestParser.request();
             httpOneDotZero = request.version().equalsIgnoreCase(HTTP_1_0);
             keepAlive = request.hasHeader(HEADER_CONNECTION, KEEP_ALIVE);
             byteTokenizer.compact();
             requestParser = new RequestParser(byteTokenizer);
-            handler.handle(request, this::onResponse);
+            if (options.http2() && Http2Session.isPreface(request)) {
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "http2_start"),
+                            new LogEntry("id", id));
+                }
+                Http2Session http2 = new Http2Session();
+                session = http2;
+                selectionKey.interestOps(SelectionKey.OP_READ);
+                http2.start();
+                return;
+            }
+            upgradeRequest = WebSocketHandshake.isUpgrade(request) ? request : null;
+            contentEncoding = compressor != null ? Compressor.negotiate(request.header(HEADER_ACCEPT_ENCODING)) : null;
+            ResponseCache cache = options.responseCache();
+            cacheKey = cache != null && upgradeRequest == null
+                    ? cache.key(handler, request, version(), httpOneDotZero && keepAlive, contentEncoding)
+                    : null;
+            if (cacheKey != null) {
+                byte[] cached = cache.get(cacheKey, clock.nanoTime());
+                if (cached != null) {
+                    if (logger.enabled()) {
+                        logger.log(
+                                new LogEntry("event", "cache_hit"),
+                                new LogEntry("id", id));
+                    }
+                    startWriteLater(ByteBuffer.wrap(cached), false);
+                    return;
+                }
+            }
+            ConcurrencyLimiter limiter = options.concurrencyLimiter();
+            if (limiter != null && !limiter.acquire()) {
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "request_shed"),
+                            new LogEntry("id", id));
+                }
+                onResponse(SERVICE_UNAVAILABLE);
+                return;
+            }
+            permitHeld = limiter != null;
+            dispatchTime = clock.nanoTime();
+            context = new Context(executor);
+            selectionKey.interestOps(SelectionKey.OP_READ); // watch for peer close while request in flight
+            if (handler instanceof BatchHandler batchHandler) {
+                List<Request> requests = pipelinedRequests(request);
+                cacheKey = null; // batches bypass the response cache
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "dispatch_batch"),
+                            new LogEntry("id", id),
+                            new LogEntry("num_requests", Integer.toString(requests.size())));
+                }
+                batchHandler.handleBatch(requests, context, responses -> onBatchResponse(requests, responses));
+            } else {
+                handler.handle(request, context, this::onResponse);
+            }
+        }
+
+        /**
+         * Collect the provided request along with the complete requests pipelined behind it in the tokenizer.
+         * Collection stops after a non-persistent request, and before a request that exceeds the maximum
+         * header size, which is rejected once the batch response is written.
+         */
+        private List<Request> pipelinedRequests(Request first) {
+            List<Request> requests = new ArrayList<>();
+            requests.add(first);
+            while ((!httpOneDotZero || keepAlive)
+                    && requestParser.parse()
+                    && requestParser.headerSize() <= options.maxHeaderSize()) {
+                Request request = requestParser.request();
+                httpOneDotZero = request.version().equalsIgnoreCase(HTTP_1_0);
+                keepAlive = request.hasHeader(HEADER_CONNECTION, KEEP_ALIVE);
+                byteTokenizer.compact();
+                requestParser = new RequestParser(byteTokenizer);
+                requests.add(request);
+            }
+            return requests;
+        }
+
+        private void cancelRequest() {
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "request_cancel"),
+                        new LogEntry("id", id));
+            }
+            selectionKey.interestOps(0);
+            if (permitHeld) {
+                permitHeld = false;
+                options.concurrencyLimiter().abandon();
+            }
+            // a response may still arrive for a half-closed connection, close if the handler abandons the request
+            requestTimeoutTask = timeoutQueue.schedule(this::onRequestTimeout, options.requestTimeout());
+            cancelContext();
+        }
+
+        private void cancelContext() {
+            try {
+                context.cancel();
+            } catch (RuntimeException e) {
+                if (logger.enabled()) {
+                    logger.log(e,
+                            new LogEntry("event", "cancel_error"),
+                            new LogEntry("id", id));
+                }
+            }
         }
 
         private void onResponse(Response response) {
+            onResponseReady(() -> prepareToWriteResponse(response));
+        }
+
+        private void onBatchResponse(List<Request> requests, List<Response> responses) {
+            onResponseReady(() -> prepareToWriteResponses(requests, responses));
+        }
+
+        private void onResponseReady(ResponseWriter writer) {
+            long latency = clock.nanoTime() - dispatchTime;
             // enqueuing the callback invocation and waking the selector
             // ensures that the response callback works properly when
             // invoked inline from the event loop thread or a separate background thread
             taskQueue.add(() -> {
+                if (closed) { // late response for abandoned request
+                    return;
+                }
+                context = null;
+                if (requestTimeoutTask != null) {
+                    requestTimeoutTask.cancel();
+                    requestTimeoutTask = null;
+                }
+                if (permitHeld) {
+                    permitHeld = false;
+                    options.concurrencyLimiter().release(latency);
+                }
                 try {
-                    prepareToWriteResponse(response);
-                } catch (IOException e) {
+                    writer.write();
+                } catch (IOException | RuntimeException e) {
                     if (logger.enabled()) {
                         logger.log(e,
                                 new LogEntry("event", "response_ready_error"),
@@ -208,20 +859,1279 @@ class ConnectionEventLoop {
             // selector wakeup is not necessary if callback was invoked within event loop thread
             // since scheduler tasks are processed at the end of every event loop iteration
             if (Thread.currentThread() != thread) {
-                selector.wakeup();
+                wakeup();
             }
         }
 
-        private void prepareToWriteResponse(Response response) throws IOException {
-            String version = httpOneDotZero ? HTTP_1_0 : HTTP_1_1;
-            List<Header> headers = new ArrayList<>();
-            if (httpOneDotZero && keepAlive) {
-                headers.add(new Header(HEADER_CONNECTION, KEEP_ALIVE));
+        private void startWriteLater(ByteBuffer bytes, boolean pooled) {
+            // enqueued rather than written inline, so a run of pipelined cache hits does not recurse
+            taskQueue.add(() -> {
+                try {
+                    startWrite(bytes, pooled);
+                } catch (IOException | RuntimeException e) {
+                    if (logger.enabled()) {
+                        logger.log(e,
+                                new LogEntry("event", "response_ready_error"),
+                                new LogEntry("id", id));
+                    }
+                    failSafeClose();
+                }
+            });
+        }
+
+        private String version() {
+            return httpOneDotZero ? HTTP_1_0 : HTTP_1_1;
+        }
+
+        private List<Header> responseHeaders(boolean httpOneDotZero, boolean keepAlive, Response response) {
+            List<Header> headers = new ArrayList<>();
+            if (httpOneDotZero && keepAlive) {
+                headers.add(new Header(HEADER_CONNECTION, KEEP_ALIVE));
             }
-            if (!response.hasHeader(HEADER_CONTENT_LENGTH)) {
+            if (response.streaming()) {
+                if (!httpOneDotZero && !response.hasHeader(HEADER_TRANSFER_ENCODING)) {
+                    headers.add(new Header(HEADER_TRANSFER_ENCODING, CHUNKED));
+                }
+            } else if (!response.hasHeader(HEADER_CONTENT_LENGTH)) {
                 headers.add(new Header(HEADER_CONTENT_LENGTH, Integer.toString(response.body().length)));
             }
-            writeBuffer = ByteBuffer.wrap(response.serialize(version, headers));
+            return headers;
+        }
+
+        private void prepareToWriteResponses(List<Request> requests, List<Response> responses) throws IOException {
+            if (responses.size() != requests.size()) {
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "batch_size_error"),
+                            new LogEntry("id", id),
+                            new LogEntry("num_requests", Integer.toString(requests.size())),
+                            new LogEntry("num_responses", Integer.toString(responses.size())));
+                }
+                failSafeClose();
+                return;
+            }
+            ByteMerger merger = new ByteMerger(); // responses share one write buffer, in request order
+            for (int i = 0; i < requests.size(); i++) {
+                Request request = requests.get(i);
+                Response response = responses.get(i);
+                if (response.streaming() || response.upgrade()) {
+                    throw new IOException("streaming or upgrade response in batch");
+                }
+                boolean oneDotZero = request.version().equalsIgnoreCase(HTTP_1_0);
+                boolean persistent = request.hasHeader(HEADER_CONNECTION, KEEP_ALIVE);
+                response.serialize(
+                        oneDotZero ? HTTP_1_0 : HTTP_1_1,
+                        responseHeaders(oneDotZero, persistent, response),
+                        merger);
+            }
+            startWrite(merger.merge(bufferPool), true);
+        }
+
+        private void prepareToWriteResponse(Response response) throws IOException {
+            Request upgrade = upgradeRequest;
+            upgradeRequest = null;
+            if (response.upgrade()) {
+                prepareToUpgrade(upgrade, response);
+                return;
+            }
+            if (response.streaming()) {
+                prepareToStreamResponse(response);
+                return;
+            }
+            if (compressor != null) {
+                int length = response.body().length;
+                response = compressor.apply(response, contentEncoding);
+                if (logger.enabled() && response.body().length != length) {
+                    logger.log(
+                            new LogEntry("event", "compress_response"),
+                            new LogEntry("id", id),
+                            new LogEntry("encoding", contentEncoding),
+                            new LogEntry("num_bytes", Integer.toString(length)),
+                            new LogEntry("compressed_bytes", Integer.toString(response.body().length)));
+                }
+            }
+            String version = version();
+            List<Header> headers = responseHeaders(httpOneDotZero, keepAlive, response);
+            ResponseCache cache = options.responseCache();
+            if (cacheKey != null && cache.cacheable(response, compressor != null)) {
+                byte[] serialized = response.serialize(version, headers);
+                cache.put(cacheKey, serialized, clock.nanoTime());
+                startWrite(ByteBuffer.wrap(serialized), false);
+            } else {
+                startWrite(response.serialize(version, headers, bufferPool), true);
+            }
+        }
+
+        private void prepareToUpgrade(Request request, Response response) throws IOException {
+            if (request == null) {
+                throw new IOException("upgrade response to request that is not a valid upgrade request");
+            }
+            if (logger.enabled()) {
+                logger.log(
+                        new LogEntry("event", "websocket_upgrade"),
+                        new LogEntry("id", id));
+            }
+            session = new WebSocketSession(request, response.webSocketHandler());
+            startWrite(response.serialize(HTTP_1_1, List.of(), bufferPool), true); // 1xx carries no Content-Length
+        }
+
+        private void prepareToStreamResponse(Response response) throws IOException {
+            if (httpOneDotZero) {
+                keepAlive = false; // body is delimited by connection close
+            }
+            if (response.hasHeader(HEADER_CONTENT_LENGTH)) { // conflicts with chunked or close-delimited framing
+                List<Header> headers = new ArrayList<>(response.headers().size());
+                for (Header header : response.headers()) {
+                    if (!header.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH)) {
+                        headers.add(header);
+                    }
+                }
+                response = Response.streaming(response.status(), response.reason(), headers, response.publisher());
+            }
+            bodySubscriber = new BodySubscriber(!httpOneDotZero);
+            response.publisher().subscribe(bodySubscriber);
+            startWrite(response.serialize(version(), responseHeaders(httpOneDotZero, keepAlive, response), bufferPool), true);
+        }
+
+        /**
+         * Subscriber to the body of a streaming response. Signals may arrive on any thread and are handled
+         * on the event loop thread. One buffer is requested at a time, once the preceding buffer is written.
+         * A buffer published without outstanding demand is a protocol violation that cancels the subscription
+         * and closes the connection.
+         */
+        private class BodySubscriber implements Flow.Subscriber<ByteBuffer> {
+            final boolean chunked;
+            Flow.Subscription subscription;
+            boolean demand; // buffer wanted before subscription arrived
+            boolean outstanding; // buffer requested and not yet received
+            boolean complete; // publisher signalled completion
+            boolean terminated; // final chunk written or in progress
+
+            BodySubscriber(boolean chunked) {
+                this.chunked = chunked;
+            }
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                executor.execute(() -> {
+                    if (bodySubscriber != this) {
+                        subscription.cancel();
+                        return;
+                    }
+                    this.subscription = subscription;
+                    if (demand) {
+                        demand = false;
+                        subscription.request(1);
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                executor.execute(() -> {
+                    if (bodySubscriber != this) {
+                        return;
+                    }
+                    if (!outstanding || terminated) {
+                        if (logger.enabled()) {
+                            logger.log(
+                                    new LogEntry("event", "stream_overflow"),
+                                    new LogEntry("id", id));
+                        }
+                        failSafeClose();
+                        return;
+                    }
+                    outstanding = false;
+                    onChunk(item);
+                });
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                executor.execute(() -> {
+                    if (bodySubscriber == this) {
+                        if (logger.enabled()) {
+                            logger.log(throwable instanceof Exception e ? e : new Exception(throwable),
+                                    new LogEntry("event", "stream_error"),
+                                    new LogEntry("id", id));
+                        }
+                        failSafeClose();
+                    }
+                });
+            }
+
+            @Override
+            public void onComplete() {
+                executor.execute(() -> {
+                    if (bodySubscriber == this) {
+                        complete = true;
+                        if (writeBuffer == null) { // otherwise final chunk follows current write
+                            terminate();
+                        }
+                    }
+                });
+            }
+
+            void terminate() {
+                terminated = true;
+                onChunk(ByteBuffer.wrap(chunked ? LAST_CHUNK : new byte[0]));
+            }
+
+            void request() {
+                outstanding = true;
+                if (subscription == null) {
+                    demand = true;
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            void cancel() {
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+
+            private void onChunk(ByteBuffer item) {
+                if (!terminated && !item.hasRemaining()) { // empty chunk would terminate the body
+                    request();
+                    return;
+                }
+                if (requestTimeoutTask != null) { // no longer waiting for stream
+                    requestTimeoutTask.cancel();
+                    requestTimeoutTask = null;
+                }
+                int size = item.remaining();
+                String prefix = chunked && !terminated ? Integer.toHexString(size) + "\r\n" : "";
+                String suffix = chunked && !terminated ? "\r\n" : "";
+                int length = prefix.length() + size + suffix.length();
+                byte[] array = bufferPool.borrow(length);
+                ByteBuffer chunk = ByteBuffer.wrap(array, 0, length);
+                chunk.put(prefix.getBytes()).put(item).put(suffix.getBytes()).flip();
+                writeBuffer = chunk;
+                writeBufferPooled = true;
+                account();
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", terminated ? "stream_complete" : "stream_chunk"),
+                            new LogEntry("id", id),
+                            new LogEntry("num_bytes", Integer.toString(size)));
+                }
+                onWritable();
+            }
+        }
+
+        /**
+         * WebSocket session of an upgraded connection. Incoming frames are parsed from the byte tokenizer
+         * and outgoing frames are queued and written one at a time. State is confined to the event loop thread.
+         */
+        private class WebSocketSession implements WebSocket, ProtocolSession {
+            static final int CLOSE_NO_STATUS = 1005;
+            static final int CLOSE_ABNORMAL = 1006;
+
+            final Request request;
+            final WebSocketHandler handler;
+            final ArrayDeque<ByteBuffer> outbound;
+            WebSocketParser parser;
+            ByteMerger fragments; // fragments of message in progress
+            int fragmentsOpcode;
+            int fragmentsSize;
+            long outboundBytes; // capacity of queued frames
+            boolean open;
+            boolean closeSent;
+            boolean closeReceived;
+            int closeCode = CLOSE_ABNORMAL;
+            String closeReason = "";
+            volatile boolean done;
+
+            WebSocketSession(Request request, WebSocketHandler handler) {
+                this.request = request;
+                this.handler = handler;
+                outbound = new ArrayDeque<>();
+                parser = new WebSocketParser(byteTokenizer, options.maxRequestSize());
+            }
+
+            @Override
+            public Request request() {
+                return request;
+            }
+
+            @Override
+            public void sendText(String message) {
+                send(WebSocketFrame.TEXT, message.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void sendBinary(byte[] message) {
+                send(WebSocketFrame.BINARY, message);
+            }
+
+            @Override
+            public void close(int code, String reason) {
+                if (!validCloseCode(code)) {
+                    throw new IllegalArgumentException("close status code may not be sent: " + code);
+                }
+                executor.execute(() -> {
+                    if (session == this && !closeSent) {
+                        sendClose(code, reason);
+                    }
+                });
+            }
+
+            @Override
+            public boolean closed() {
+                return done;
+            }
+
+            private void send(int opcode, byte[] payload) {
+                executor.execute(() -> {
+                    if (session == this && !closeSent) {
+                        enqueue(WebSocketFrame.encode(opcode, payload, bufferPool));
+                    }
+                });
+            }
+
+            /**
+             * Send a close frame. The reason is truncated to fit the control frame payload,
+             * on a character boundary so that it remains valid UTF-8.
+             */
+            private void sendClose(int code, String reason) {
+                closeSent = true;
+                ByteBuffer payload = ByteBuffer.allocate(WebSocketFrame.MAX_CONTROL_PAYLOAD);
+                payload.putShort((short) code);
+                StandardCharsets.UTF_8.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .encode(CharBuffer.wrap(reason), payload, true); // stops short of a character that does not fit
+                byte[] bytes = Arrays.copyOf(payload.array(), payload.position());
+                enqueue(WebSocketFrame.encode(WebSocketFrame.CLOSE, bytes, bufferPool));
+                if (!closeReceived) { // close if the client does not acknowledge in time
+                    requestTimeoutTask = timeoutQueue.schedule(Connection.this::onRequestTimeout, options.requestTimeout());
+                }
+            }
+
+            private void enqueue(ByteBuffer frame) {
+                outbound.add(frame);
+                outboundBytes += frame.capacity();
+                if (writeBuffer == null && open) {
+                    writeNext();
+                } else {
+                    account();
+                }
+            }
+
+            private void writeNext() {
+                writeBuffer = outbound.poll();
+                writeBufferPooled = true;
+                outboundBytes -= writeBuffer.capacity();
+                account();
+                onWritable();
+            }
+
+            @Override
+            public void onWriteComplete() {
+                if (!open) { // upgrade response written
+                    open = true;
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                    handler.onOpen(this);
+                    if (session == this && byteTokenizer.remaining() > 0) { // frames sent along with upgrade request
+                        onData();
+                    }
+                }
+                if (session != this || writeBuffer != null) {
+                    return;
+                }
+                if (!outbound.isEmpty()) {
+                    writeNext();
+                } else if (closeSent && closeReceived) { // closing handshake complete
+                    failSafeClose();
+                } else if (selectionKey.interestOps() != SelectionKey.OP_READ) {
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                }
+            }
+
+            @Override
+            public void onData() {
+                try {
+                    while (session == this && !closeReceived && parser.parse()) {
+                        WebSocketFrame frame = parser.frame();
+                        byteTokenizer.compact();
+                        parser = new WebSocketParser(byteTokenizer, options.maxRequestSize());
+                        onFrame(frame);
+                    }
+                } catch (WebSocketException e) {
+                    if (logger.enabled()) {
+                        logger.log(e,
+                                new LogEntry("event", "websocket_error"),
+                                new LogEntry("id", id),
+                                new LogEntry("code", Integer.toString(e.closeCode)));
+                    }
+                    fail(e);
+                }
+                if (session == this && byteTokenizer.remaining() == 0) {
+                    byteTokenizer.release(); // nothing buffered between messages
+                }
+                if (session == this) {
+                    account();
+                }
+            }
+
+            @Override
+            public long bufferedBytes() {
+                return (fragments != null ? fragmentsSize : 0) + outboundBytes;
+            }
+
+            /**
+             * Stop reading and close the connection once a close frame with the status code of the error is written.
+             */
+            private void fail(WebSocketException e) {
+                closeReceived = true;
+                closeCode = e.closeCode;
+                closeReason = "";
+                fragments = null;
+                if (!closeSent) {
+                    sendClose(e.closeCode, e.getMessage());
+                } else if (writeBuffer == null) {
+                    failSafeClose();
+                }
+            }
+
+            private void onFrame(WebSocketFrame frame) {
+                switch (frame.opcode()) {
+                    case WebSocketFrame.CLOSE -> onCloseFrame(frame.payload());
+                    case WebSocketFrame.PING -> enqueue(WebSocketFrame.encode(WebSocketFrame.PONG, frame.payload(), bufferPool));
+                    case WebSocketFrame.PONG -> {
+                    }
+                    case WebSocketFrame.TEXT, WebSocketFrame.BINARY -> {
+                        if (fragments != null) {
+                            throw new WebSocketException(WebSocketException.PROTOCOL_ERROR,
+                                    "message started before previous message finished");
+                        }
+                        fragments = new ByteMerger();
+                        fragmentsOpcode = frame.opcode();
+                        fragmentsSize = 0;
+                        onFragment(frame);
+                    }
+                    case WebSocketFrame.CONTINUATION -> {
+                        if (fragments == null) {
+                            throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "continuation without message");
+                        }
+                        onFragment(frame);
+                    }
+                    default -> throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "unknown opcode");
+                }
+            }
+
+            private void onFragment(WebSocketFrame frame) {
+                fragmentsSize += frame.payload().length;
+                if (fragmentsSize > options.maxRequestSize()) {
+                    throw new WebSocketException(WebSocketException.MESSAGE_TOO_BIG, "message exceeds maximum size");
+                }
+                fragments.add(frame.payload());
+                if (!frame.fin()) {
+                    return;
+                }
+                byte[] message = fragments.merge();
+                fragments = null;
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "websocket_message"),
+                            new LogEntry("id", id),
+                            new LogEntry("num_bytes", Integer.toString(message.length)));
+                }
+                if (fragmentsOpcode == WebSocketFrame.TEXT) {
+                    handler.onText(this, decodeText(message, 0));
+                } else {
+                    handler.onBinary(this, message);
+                }
+            }
+
+            /**
+             * Decode UTF-8 text, rejecting malformed input rather than substituting replacement characters.
+             */
+            private String decodeText(byte[] bytes, int offset) {
+                try {
+                    return StandardCharsets.UTF_8.newDecoder()
+                            .onMalformedInput(CodingErrorAction.REPORT)
+                            .onUnmappableCharacter(CodingErrorAction.REPORT)
+                            .decode(ByteBuffer.wrap(bytes, offset, bytes.length - offset))
+                            .toString();
+                } catch (CharacterCodingException e) {
+                    throw new WebSocketException(WebSocketException.INVALID_PAYLOAD, "invalid UTF-8 text");
+                }
+            }
+
+            /**
+             * Indicates whether the status code may be sent in a close frame, RFC 6455 Section 7.4.
+             * Codes 1004 through 1006 and 1015 are reserved for local use.
+             */
+            private static boolean validCloseCode(int code) {
+                return (code >= 1000 && code <= 1003)
+                        || (code >= 1007 && code <= 1014)
+                        || (code >= 3000 && code <= 4999);
+            }
+
+            private void onCloseFrame(byte[] payload) {
+                if (payload.length == 1) {
+                    throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "truncated close status code");
+                }
+                if (payload.length >= 2) {
+                    int code = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+                    if (!validCloseCode(code)) {
+                        throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "invalid close status code");
+                    }
+                    closeReason = decodeText(payload, 2);
+                    closeCode = code;
+                } else {
+                    closeCode = CLOSE_NO_STATUS;
+                }
+                closeReceived = true;
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "websocket_close"),
+                            new LogEntry("id", id),
+                            new LogEntry("code", Integer.toString(closeCode)));
+                }
+                if (!closeSent) { // echo status code to complete the closing handshake
+                    sendClose(closeCode == CLOSE_NO_STATUS ? 1000 : closeCode, "");
+                } else if (writeBuffer == null) {
+                    failSafeClose();
+                }
+            }
+
+            @Override
+            public void onConnectionClose() {
+                done = true;
+                for (ByteBuffer frame : outbound) {
+                    bufferPool.release(frame.array());
+                }
+                outbound.clear();
+                outboundBytes = 0;
+                handler.onClose(this, closeCode, closeReason);
+            }
+        }
+
+        /**
+         * HTTP/2 session of a connection that opened with the cleartext prior-knowledge preface (h2c).
+         * Frames are parsed from the byte tokenizer. Each stream is dispatched to the handler as a discrete request
+         * once its header block and body are complete, and streams are handled concurrently.
+         * <p>
+         * Frames produced while processing the frames of one read, or a response, are merged into one write buffer.
+         * Response data is framed only as the flow-control windows of the peer allow, and streams awaiting window
+         * are resumed by WINDOW_UPDATE frames. Request data is acknowledged with WINDOW_UPDATE frames once the body
+         * is dispatched or discarded, and buffered bodies count toward the memory budget.
+         * State is confined to the event loop thread.
+         */
+        private class Http2Session implements ProtocolSession {
+            static final String PREFACE_METHOD = "PRI";
+            static final String PREFACE_URI = "*";
+            static final String PREFACE_VERSION = "HTTP/2.0";
+            static final byte[] PREFACE_TAIL = "SM\r\n\r\n".getBytes();
+
+            static final String VERSION = "HTTP/2";
+            static final int MAX_CONCURRENT_STREAMS = 100;
+            static final int DEFAULT_WINDOW_SIZE = 65_535;
+            static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+            static final int MAX_FRAME_SIZE_LIMIT = 0xFFFFFF;
+            static final Set<String> CONNECTION_HEADERS =
+                    Set.of("connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade");
+
+            final Map<Integer, Stream> streams;
+            final ArrayDeque<Stream> blocked; // streams with response data awaiting flow-control window
+            final Hpack.Decoder decoder;
+            Http2Parser parser;
+            ByteMerger output; // frames not yet handed to the write buffer
+            boolean prefaceReceived;
+            int lastStreamId;
+            int headerBlockStreamId; // stream of header block awaiting CONTINUATION frames, zero if none
+            boolean headerBlockEndStream;
+            ByteMerger headerBlock;
+            int headerBlockSize;
+            int sendWindow = DEFAULT_WINDOW_SIZE; // connection flow-control window for response data
+            long bodyBytes; // request body bytes buffered by streams not yet dispatched
+            int initialWindowSize = DEFAULT_WINDOW_SIZE; // peer setting, applies to stream windows
+            int maxFrameSize = Http2Frame.DEFAULT_MAX_FRAME_SIZE; // peer setting
+            boolean goingAway; // GOAWAY sent or received, no new streams
+            boolean closing; // close once output is written
+
+            static boolean isPreface(Request request) {
+                return request.method().equals(PREFACE_METHOD)
+                        && request.uri().equals(PREFACE_URI)
+                        && request.version().equals(PREFACE_VERSION)
+                        && request.headers().isEmpty();
+            }
+
+            /**
+             * Client stream, from its first HEADERS frame until the last frame of the response is produced
+             * or the stream is reset.
+             */
+            private class Stream {
+                final int id;
+                final List<Header> headers;
+                final Cancellable timeoutTask;
+                String method;
+                String path;
+                ByteMerger body;
+                int bodySize;
+                boolean endStream; // request complete
+                int sendWindow;
+                Context context; // context of request dispatched to handler, awaiting response
+                boolean permitHeld;
+                long dispatchTime;
+                byte[] data; // response body
+                int dataOffset; // response body bytes framed so far
+
+                Stream(int id) {
+                    this.id = id;
+                    headers = new ArrayList<>();
+                    body = new ByteMerger();
+                    sendWindow = initialWindowSize;
+                    timeoutTask = timeoutQueue.schedule(() -> onStreamTimeout(this), options.requestTimeout());
+                }
+            }
+
+            Http2Session() {
+                streams = new HashMap<>();
+                blocked = new ArrayDeque<>();
+                decoder = new Hpack.Decoder();
+                parser = new Http2Parser(byteTokenizer);
+                output = new ByteMerger();
+            }
+
+            /**
+             * Request bodies are dispatched whole, so each stream window admits a body of the maximum request size
+             * and is never replenished. The connection window is the same size and is replenished as bodies are
+             * dispatched or discarded, so a connection buffers at most one maximum-size body, as with HTTP/1.1.
+             */
+            void start() {
+                int receiveWindow = options.maxRequestSize();
+                byte[] settings = new byte[18];
+                putSetting(settings, 0, Http2Frame.SETTINGS_MAX_CONCURRENT_STREAMS, MAX_CONCURRENT_STREAMS);
+                putSetting(settings, 6, Http2Frame.SETTINGS_MAX_HEADER_LIST_SIZE, options.maxHeaderSize());
+                putSetting(settings, 12, Http2Frame.SETTINGS_INITIAL_WINDOW_SIZE, receiveWindow);
+                output.add(Http2Frame.encode(Http2Frame.SETTINGS, 0, 0, settings));
+                if (receiveWindow > DEFAULT_WINDOW_SIZE) { // connection window is not subject to settings
+                    output.add(windowUpdateFrame(0, receiveWindow - DEFAULT_WINDOW_SIZE));
+                }
+                startIdle();
+                onData(); // frames sent along with preface
+            }
+
+            private void putSetting(byte[] payload, int offset, int id, int value) {
+                payload[offset] = (byte) (id >>> 8);
+                payload[offset + 1] = (byte) id;
+                Http2Frame.putInt(payload, offset + 2, value);
+            }
+
+            @Override
+            public void onData() {
+                try {
+                    readFrames();
+                } catch (Http2Exception e) {
+                    if (logger.enabled()) {
+                        logger.log(e,
+                                new LogEntry("event", "http2_error"),
+                                new LogEntry("id", id),
+                                new LogEntry("error_code", Integer.toString(e.errorCode)));
+                    }
+                    goAway(e.errorCode);
+                    closing = true;
+                }
+                if (session == this && byteTokenizer.remaining() == 0) {
+                    byteTokenizer.release(); // nothing buffered between frames
+                }
+                account();
+                flush();
+            }
+
+            private void readFrames() {
+                if (!prefaceReceived) {
+                    byte[] tail = byteTokenizer.next(PREFACE_TAIL.length);
+                    if (tail == null) {
+                        return;
+                    }
+                    if (!Arrays.equals(tail, PREFACE_TAIL)) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "invalid connection preface");
+                    }
+                    prefaceReceived = true;
+                }
+                while (session == this && !closing && parser.parse()) {
+                    Http2Frame frame = parser.frame();
+                    byteTokenizer.compact();
+                    parser = new Http2Parser(byteTokenizer);
+                    onFrame(frame);
+                }
+            }
+
+            @Override
+            public void onWriteComplete() {
+                flush();
+                if (session == this && writeBuffer == null && selectionKey.interestOps() != SelectionKey.OP_READ) {
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                }
+            }
+
+            @Override
+            public void onConnectionClose() {
+                for (Stream stream : streams.values()) {
+                    abandon(stream);
+                }
+                streams.clear();
+                blocked.clear();
+                bodyBytes = 0;
+            }
+
+            @Override
+            public long bufferedBytes() {
+                return bodyBytes + output.sumOfLengths();
+            }
+
+            private void flush() {
+                if (session != this || writeBuffer != null) {
+                    return;
+                }
+                if (output.sumOfLengths() > 0) {
+                    ByteMerger frames = output;
+                    output = new ByteMerger();
+                    writeBuffer = frames.merge(bufferPool);
+                    writeBufferPooled = true;
+                    account();
+                    onWritable();
+                } else if (closing) {
+                    failSafeClose();
+                }
+            }
+
+            private void onFrame(Http2Frame frame) {
+                if (headerBlockStreamId != 0 && frame.type() != Http2Frame.CONTINUATION) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "header block interrupted");
+                }
+                switch (frame.type()) {
+                    case Http2Frame.DATA -> onDataFrame(frame);
+                    case Http2Frame.HEADERS -> onHeadersFrame(frame);
+                    case Http2Frame.PRIORITY -> {
+                    }
+                    case Http2Frame.RST_STREAM -> onResetFrame(frame);
+                    case Http2Frame.SETTINGS -> onSettingsFrame(frame);
+                    case Http2Frame.PUSH_PROMISE ->
+                            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "push promise from client");
+                    case Http2Frame.PING -> onPingFrame(frame);
+                    case Http2Frame.GOAWAY -> onGoAwayFrame(frame);
+                    case Http2Frame.WINDOW_UPDATE -> onWindowUpdateFrame(frame);
+                    case Http2Frame.CONTINUATION -> onContinuationFrame(frame);
+                    default -> { // unknown frame types are ignored
+                    }
+                }
+            }
+
+            /**
+             * Payload of a frame with padding, and any fields preceding the content, removed.
+             */
+            private byte[] content(Http2Frame frame, int fieldsLength) {
+                byte[] payload = frame.payload();
+                int offset = 0;
+                int length = payload.length;
+                if (frame.hasFlag(Http2Frame.FLAG_PADDED)) {
+                    if (length == 0) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "missing pad length");
+                    }
+                    offset = 1;
+                    length -= 1 + (payload[0] & 0xFF);
+                }
+                offset += fieldsLength;
+                length -= fieldsLength;
+                if (length < 0) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "padding exceeds payload");
+                }
+                return Arrays.copyOfRange(payload, offset, offset + length);
+            }
+
+            private void onHeadersFrame(Http2Frame frame) {
+                int streamId = frame.streamId();
+                if (streamId == 0 || (streamId & 1) == 0) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "invalid stream id");
+                }
+                byte[] fragment = content(frame, frame.hasFlag(Http2Frame.FLAG_PRIORITY) ? 5 : 0); // priority ignored
+                headerBlockStreamId = streamId;
+                headerBlockEndStream = frame.hasFlag(Http2Frame.FLAG_END_STREAM);
+                headerBlock = new ByteMerger();
+                headerBlockSize = 0;
+                onHeaderBlockFragment(fragment, frame.hasFlag(Http2Frame.FLAG_END_HEADERS));
+            }
+
+            private void onContinuationFrame(Http2Frame frame) {
+                if (headerBlockStreamId == 0 || frame.streamId() != headerBlockStreamId) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "unexpected continuation");
+                }
+                onHeaderBlockFragment(frame.payload(), frame.hasFlag(Http2Frame.FLAG_END_HEADERS));
+            }
+
+            private void onHeaderBlockFragment(byte[] fragment, boolean endHeaders) {
+                headerBlockSize += fragment.length;
+                if (headerBlockSize > options.maxHeaderSize()) { // compressed block no larger than header list
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "header block exceeds maximum size");
+                }
+                headerBlock.add(fragment);
+                if (!endHeaders) {
+                    return;
+                }
+                int streamId = headerBlockStreamId;
+                headerBlockStreamId = 0;
+                List<Header> fields = decoder.decode(headerBlock.merge(), options.maxHeaderSize());
+                headerBlock = null;
+                onHeaderBlock(streamId, fields, headerBlockEndStream);
+            }
+
+            private void onHeaderBlock(int streamId, List<Header> fields, boolean endStream) {
+                Stream stream = streams.get(streamId);
+                if (stream != null) { // trailers, ignored
+                    if (stream.endStream || !endStream) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "unexpected header block");
+                    }
+                    onEndStream(stream);
+                    return;
+                }
+                if (streamId <= lastStreamId) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "stream id not increasing");
+                }
+                lastStreamId = streamId;
+                if (goingAway) {
+                    return;
+                }
+                if (streams.size() >= MAX_CONCURRENT_STREAMS) {
+                    output.add(resetFrame(streamId, Http2Exception.REFUSED_STREAM));
+                    return;
+                }
+                stream = new Stream(streamId);
+                String authority = null;
+                boolean host = false;
+                for (Header field : fields) {
+                    switch (field.name()) {
+                        case ":method" -> stream.method = field.value();
+                        case ":path" -> stream.path = field.value();
+                        case ":authority" -> authority = field.value();
+                        case ":scheme" -> {
+                        }
+                        default -> {
+                            host |= field.name().equals("host");
+                            stream.headers.add(field);
+                        }
+                    }
+                }
+                if (authority != null && !host) { // handlers written for HTTP/1.1 expect a Host header
+                    stream.headers.add(new Header("host", authority));
+                }
+                if (requestTimeoutTask != null) { // connection no longer idle
+                    requestTimeoutTask.cancel();
+                    requestTimeoutTask = null;
+                }
+                streams.put(streamId, stream);
+                if (stream.method == null || stream.path == null) { // malformed request
+                    resetStream(stream, Http2Exception.PROTOCOL_ERROR);
+                } else if (endStream) {
+                    onEndStream(stream);
+                }
+            }
+
+            private void onDataFrame(Http2Frame frame) {
+                int streamId = frame.streamId();
+                if (streamId == 0 || streamId > lastStreamId) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "data on idle stream");
+                }
+                int length = frame.payload().length;
+                Stream stream = streams.get(streamId);
+                if (stream == null || stream.endStream) { // stream reset, refused, or complete, data ignored
+                    replenish(0, length);
+                    if (stream != null) {
+                        resetStream(stream, Http2Exception.STREAM_CLOSED);
+                    }
+                    return;
+                }
+                byte[] data = content(frame, 0);
+                int padding = length - data.length;
+                replenish(0, padding); // padding is not buffered
+                if (!frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+                    replenish(streamId, padding);
+                }
+                stream.body.add(data);
+                stream.bodySize += data.length;
+                bodyBytes += data.length;
+                if (stream.bodySize > options.maxRequestSize()) {
+                    if (logger.enabled()) {
+                        logger.log(
+                                new LogEntry("event", "exceed_request_max_reset"),
+                                new LogEntry("id", id),
+                                new LogEntry("stream_id", Integer.toString(streamId)),
+                                new LogEntry("request_size", Integer.toString(stream.bodySize)));
+                    }
+                    resetStream(stream, Http2Exception.CANCEL);
+                    return;
+                }
+                if (frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+                    onEndStream(stream);
+                }
+            }
+
+            private void replenish(int streamId, int increment) {
+                if (increment > 0) {
+                    output.add(windowUpdateFrame(streamId, increment));
+                }
+            }
+
+            /**
+             * Release the buffered body of a stream, returning its bytes to the connection flow-control window.
+             */
+            private void releaseBody(Stream stream) {
+                if (stream.body != null) {
+                    stream.body = null;
+                    bodyBytes -= stream.bodySize;
+                    replenish(0, stream.bodySize);
+                }
+            }
+
+            private void onResetFrame(Http2Frame frame) {
+                if (frame.payload().length != 4) {
+                    throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "invalid RST_STREAM length");
+                }
+                if (frame.streamId() == 0 || frame.streamId() > lastStreamId) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "reset of idle stream");
+                }
+                Stream stream = streams.get(frame.streamId());
+                if (stream == null) {
+                    return;
+                }
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "stream_reset"),
+                            new LogEntry("id", id),
+                            new LogEntry("stream_id", Integer.toString(stream.id)),
+                            new LogEntry("error_code", Integer.toString(Http2Frame.getInt(frame.payload(), 0))));
+                }
+                abandon(stream);
+                closeStream(stream);
+            }
+
+            private void onSettingsFrame(Http2Frame frame) {
+                byte[] payload = frame.payload();
+                if (frame.streamId() != 0) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "settings on stream");
+                }
+                if (frame.hasFlag(Http2Frame.FLAG_ACK)) {
+                    if (payload.length != 0) {
+                        throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "settings acknowledgement with payload");
+                    }
+                    return;
+                }
+                if (payload.length % 6 != 0) {
+                    throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "invalid SETTINGS length");
+                }
+                for (int i = 0; i < payload.length; i += 6) {
+                    int setting = ((payload[i] & 0xFF) << 8) | (payload[i + 1] & 0xFF);
+                    int value = Http2Frame.getInt(payload, i + 2);
+                    if (setting == Http2Frame.SETTINGS_INITIAL_WINDOW_SIZE) {
+                        if (value < 0) {
+                            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "invalid initial window size");
+                        }
+                        int delta = value - initialWindowSize;
+                        initialWindowSize = value;
+                        for (Stream stream : streams.values()) {
+                            stream.sendWindow = addWindow(stream.sendWindow, delta);
+                        }
+                    } else if (setting == Http2Frame.SETTINGS_MAX_FRAME_SIZE) {
+                        if (value < Http2Frame.DEFAULT_MAX_FRAME_SIZE || value > MAX_FRAME_SIZE_LIMIT) {
+                            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "invalid maximum frame size");
+                        }
+                        maxFrameSize = value;
+                    } // any header table size is honored, as the encoder never indexes; other settings are advisory
+                }
+                output.add(Http2Frame.encode(Http2Frame.SETTINGS, Http2Frame.FLAG_ACK, 0, new byte[0]));
+                resumeBlocked();
+            }
+
+            private void onPingFrame(Http2Frame frame) {
+                if (frame.streamId() != 0) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "ping on stream");
+                }
+                if (frame.payload().length != 8) {
+                    throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "invalid PING length");
+                }
+                if (!frame.hasFlag(Http2Frame.FLAG_ACK)) {
+                    output.add(Http2Frame.encode(Http2Frame.PING, Http2Frame.FLAG_ACK, 0, frame.payload()));
+                }
+            }
+
+            private void onGoAwayFrame(Http2Frame frame) {
+                if (frame.streamId() != 0) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "goaway on stream");
+                }
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "http2_goaway"),
+                            new LogEntry("id", id));
+                }
+                goingAway = true;
+                closing = streams.isEmpty(); // otherwise close after last response
+            }
+
+            private void onWindowUpdateFrame(Http2Frame frame) {
+                if (frame.payload().length != 4) {
+                    throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "invalid WINDOW_UPDATE length");
+                }
+                int increment = Http2Frame.getInt(frame.payload(), 0) & 0x7FFFFFFF;
+                if (increment == 0) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "zero window increment");
+                }
+                if (frame.streamId() == 0) {
+                    sendWindow = addWindow(sendWindow, increment);
+                    resumeBlocked();
+                    return;
+                }
+                Stream stream = streams.get(frame.streamId());
+                if (stream != null) {
+                    stream.sendWindow = addWindow(stream.sendWindow, increment);
+                    if (blocked.remove(stream)) {
+                        writeData(stream);
+                    }
+                }
+            }
+
+            private int addWindow(int window, int increment) {
+                long sum = (long) window + increment;
+                if (sum > MAX_WINDOW_SIZE) {
+                    throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "window exceeds maximum size");
+                }
+                return (int) sum;
+            }
+
+            private void onEndStream(Stream stream) {
+                stream.endStream = true;
+                Request request = new Request(stream.method, stream.path, VERSION, stream.headers, stream.body.merge());
+                releaseBody(stream);
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "http2_request"),
+                            new LogEntry("id", id),
+                            new LogEntry("stream_id", Integer.toString(stream.id)));
+                }
+                ConcurrencyLimiter limiter = options.concurrencyLimiter();
+                if (limiter != null && !limiter.acquire()) {
+                    if (logger.enabled()) {
+                        logger.log(
+                                new LogEntry("event", "request_shed"),
+                                new LogEntry("id", id),
+                                new LogEntry("stream_id", Integer.toString(stream.id)));
+                    }
+                    writeResponse(stream, SERVICE_UNAVAILABLE);
+                    return;
+                }
+                stream.permitHeld = limiter != null;
+                stream.dispatchTime = clock.nanoTime();
+                Context context = new Context(executor);
+                stream.context = context;
+                handler.handle(request, context, response -> executor.execute(() -> onResponse(stream, context, response)));
+            }
+
+            private void onResponse(Stream stream, Context context, Response response) {
+                if (session != this || stream.context != context) { // late response for reset stream or closed connection
+                    return;
+                }
+                stream.context = null;
+                if (stream.permitHeld) {
+                    stream.permitHeld = false;
+                    options.concurrencyLimiter().release(clock.nanoTime() - stream.dispatchTime);
+                }
+                writeResponse(stream, response);
+                flush();
+                account();
+            }
+
+            private void writeResponse(Stream stream, Response response) {
+                if (response.streaming() || response.upgrade()) {
+                    if (logger.enabled()) {
+                        String event = response.streaming() ? "http2_streaming_unsupported" : "http2_upgrade_unsupported";
+                        logger.log(
+                                new LogEntry("event", event),
+                                new LogEntry("id", id),
+                                new LogEntry("stream_id", Integer.toString(stream.id)));
+                    }
+                    resetStream(stream, Http2Exception.INTERNAL_ERROR);
+                    return;
+                }
+                List<Header> fields = new ArrayList<>();
+                fields.add(new Header(":status", Integer.toString(response.status())));
+                for (Header header : response.headers()) {
+                    if (!CONNECTION_HEADERS.contains(header.name().toLowerCase(Locale.ROOT))) {
+                        fields.add(header);
+                    }
+                }
+                if (!response.hasHeader(Connection.HEADER_CONTENT_LENGTH)) {
+                    fields.add(new Header(Connection.HEADER_CONTENT_LENGTH, Integer.toString(response.body().length)));
+                }
+                byte[] block = Hpack.encode(fields);
+                boolean endStream = response.body().length == 0;
+                int offset = 0;
+                int type = Http2Frame.HEADERS;
+                do { // header block larger than peer frame size continues in CONTINUATION frames
+                    int length = Math.min(maxFrameSize, block.length - offset);
+                    int flags = (offset + length == block.length ? Http2Frame.FLAG_END_HEADERS : 0)
+                            | (type == Http2Frame.HEADERS && endStream ? Http2Frame.FLAG_END_STREAM : 0);
+                    output.add(Http2Frame.encode(type, flags, stream.id, block, offset, length));
+                    offset += length;
+                    type = Http2Frame.CONTINUATION;
+                } while (offset < block.length);
+                if (endStream) {
+                    closeStream(stream);
+                } else {
+                    stream.data = response.body();
+                    writeData(stream);
+                }
+            }
+
+            private void writeData(Stream stream) {
+                while (stream.dataOffset < stream.data.length) {
+                    int length = Math.min(Math.min(stream.data.length - stream.dataOffset, maxFrameSize),
+                            Math.min(sendWindow, stream.sendWindow));
+                    if (length <= 0) { // resumed by WINDOW_UPDATE or SETTINGS
+                        blocked.add(stream);
+                        return;
+                    }
+                    boolean last = stream.dataOffset + length == stream.data.length;
+                    output.add(Http2Frame.encode(Http2Frame.DATA, last ? Http2Frame.FLAG_END_STREAM : 0,
+                            stream.id, stream.data, stream.dataOffset, length));
+                    stream.dataOffset += length;
+                    sendWindow -= length;
+                    stream.sendWindow -= length;
+                }
+                closeStream(stream);
+            }
+
+            private void resumeBlocked() {
+                for (int i = blocked.size(); i > 0 && sendWindow > 0; i--) {
+                    writeData(blocked.poll()); // re-added if still blocked
+                }
+            }
+
+            private void onStreamTimeout(Stream stream) {
+                if (session != this || streams.get(stream.id) != stream) {
+                    return;
+                }
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "request_timeout"),
+                            new LogEntry("id", id),
+                            new LogEntry("stream_id", Integer.toString(stream.id)));
+                }
+                resetStream(stream, Http2Exception.CANCEL);
+                flush();
+            }
+
+            private void resetStream(Stream stream, int errorCode) {
+                output.add(resetFrame(stream.id, errorCode));
+                abandon(stream);
+                closeStream(stream);
+            }
+
+            /**
+             * Release the resources of a stream whose response will not be written.
+             */
+            private void abandon(Stream stream) {
+                stream.timeoutTask.cancel();
+                if (stream.permitHeld) {
+                    stream.permitHeld = false;
+                    options.concurrencyLimiter().abandon();
+                }
+                if (stream.context != null) {
+                    Context context = stream.context;
+                    stream.context = null;
+                    try {
+                        context.cancel();
+                    } catch (RuntimeException e) {
+                        if (logger.enabled()) {
+                            logger.log(e,
+                                    new LogEntry("event", "cancel_error"),
+                                    new LogEntry("id", id));
+                        }
+                    }
+                }
+            }
+
+            private void closeStream(Stream stream) {
+                stream.timeoutTask.cancel();
+                releaseBody(stream);
+                streams.remove(stream.id);
+                blocked.remove(stream);
+                if (!streams.isEmpty()) {
+                    return;
+                }
+                if (goingAway) {
+                    closing = true;
+                } else {
+                    startIdle();
+                }
+            }
+
+            private void startIdle() {
+                if (requestTimeoutTask != null) {
+                    requestTimeoutTask.cancel();
+                }
+                requestTimeoutTask = timeoutQueue.schedule(this::onIdleTimeout, options.idleTimeout());
+            }
+
+            /**
+             * Close gracefully with GOAWAY carrying NO_ERROR. No streams are open while idle.
+             */
+            private void onIdleTimeout() {
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "idle_timeout"),
+                            new LogEntry("id", id));
+                }
+                goAway(Http2Exception.NO_ERROR);
+                closing = true;
+                flush();
+            }
+
+            /**
+             * Attempt to write GOAWAY carrying NO_ERROR as the event loop stops, without waiting for it to be written.
+             * Nothing is sent if a write is in progress, since the frame would interleave with a partial frame.
+             */
+            void onShutdown() {
+                if (closed || writeBuffer != null || closing) {
+                    return;
+                }
+                goAway(Http2Exception.NO_ERROR);
+                try {
+                    channel.write(ByteBuffer.wrap(output.merge()));
+                } catch (IOException e) {
+                    // connection closes regardless
+                }
+            }
+
+            private void goAway(int errorCode) {
+                byte[] payload = new byte[8];
+                Http2Frame.putInt(payload, 0, lastStreamId);
+                Http2Frame.putInt(payload, 4, errorCode);
+                output.add(Http2Frame.encode(Http2Frame.GOAWAY, 0, 0, payload));
+                goingAway = true;
+            }
+
+            private byte[] resetFrame(int streamId, int errorCode) {
+                byte[] payload = new byte[4];
+                Http2Frame.putInt(payload, 0, errorCode);
+                return Http2Frame.encode(Http2Frame.RST_STREAM, 0, streamId, payload);
+            }
+
+            private byte[] windowUpdateFrame(int streamId, int increment) {
+                byte[] payload = new byte[4];
+                Http2Frame.putInt(payload, 0, increment);
+                return Http2Frame.encode(Http2Frame.WINDOW_UPDATE, 0, streamId, payload);
+            }
+        }
+
+        private void startWrite(ByteBuffer bytes, boolean pooled) throws IOException {
+            writeBuffer = bytes;
+            writeBufferPooled = pooled;
+            account();
             if (logger.enabled()) {
                 logger.log(
                         new LogEntry("event", "response_ready"),
@@ -232,6 +2142,10 @@ class ConnectionEventLoop {
         }
 
         private void onWritable() {
+            if (handshaking) {
+                onHandshake();
+                return;
+            }
             try {
                 doOnWritable();
             } catch (IOException | RuntimeException e) {
@@ -247,17 +2161,37 @@ class ConnectionEventLoop {
         private int doWrite() throws IOException {
             buffer.clear(); // pos = 0, limit = capacity
             int amount = Math.min(buffer.remaining(), writeBuffer.remaining()); // determine transfer quantity
-            buffer.put(writeBuffer.array(), writeBuffer.position(), amount); // do transfer
+            buffer.put(writeBuffer.array(), writeBuffer.position(), amount); // do transfer, pooled array has zero offset
             buffer.flip();
-            int written = socketChannel.write(buffer);
+            int written = channel.write(buffer);
             writeBuffer.position(writeBuffer.position() + written); // advance write buffer
             return written;
         }
 
         private void doOnWritable() throws IOException {
             int numBytes = doWrite();
-            if (!writeBuffer.hasRemaining()) { // response fully written
-                writeBuffer = null; // done with current write buffer, remove reference
+            if (!writeBuffer.hasRemaining() && (tls == null || tls.flushed())) { // response fully written
+                if (writeTimeoutTask != null) {
+                    writeTimeoutTask.cancel();
+                    writeTimeoutTask = null;
+                }
+                releaseWriteBuffer(); // done with current write buffer, remove reference
+                account();
+                if (session != null) {
+                    session.onWriteComplete();
+                    return;
+                }
+                if (bodySubscriber != null && !bodySubscriber.terminated) { // streaming body in progress
+                    if (bodySubscriber.complete) {
+                        bodySubscriber.terminate();
+                    } else { // wait for next chunk, watching for peer close
+                        selectionKey.interestOps(SelectionKey.OP_READ);
+                        requestTimeoutTask = timeoutQueue.schedule(this::onStreamTimeout, options.idleTimeout());
+                        bodySubscriber.request();
+                    }
+                    return;
+                }
+                bodySubscriber = null;
                 if (logger.enabled()) {
                     logger.log(
                             new LogEntry("event", "write_response"),
@@ -273,15 +2207,24 @@ class ConnectionEventLoop {
                     failSafeClose();
                 } else { // persistent connection
                     if (requestParser.parse()) { // subsequent request in buffer
+                        if (exceedsMaxHeaderSize()) {
+                            return;
+                        }
                         if (logger.enabled()) {
                             logger.log(
                                     new LogEntry("event", "pipeline_request"),
                                     new LogEntry("id", id),
                                     new LogEntry("request_bytes", Integer.toString(byteTokenizer.remaining())));
                         }
-                        onParseRequest();
+                        dispatchOrPause();
                     } else { // switch back to read mode
-                        requestTimeoutTask = timeoutQueue.schedule(this::onRequestTimeout, options.requestTimeout());
+                        byteTokenizer.release(); // hibernate idle connection, nothing buffered
+                        account();
+                        if (byteTokenizer.remaining() == 0) {
+                            enterIdle();
+                        } else { // partial pipelined request
+                            requestTimeoutTask = timeoutQueue.schedule(this::onRequestTimeout, options.requestTimeout());
+                        }
                         selectionKey.interestOps(SelectionKey.OP_READ);
                     }
                 }
@@ -295,20 +2238,111 @@ class ConnectionEventLoop {
                             new LogEntry("id", id),
                             new LogEntry("num_bytes", Integer.toString(numBytes)));
                 }
+                trackWriteProgress(numBytes);
+            }
+        }
+
+        private void trackWriteProgress(int numBytes) {
+            long now = clock.nanoTime();
+            if (writeTimeoutTask == null) { // entering write mode
+                writeStartTime = now;
+                writtenBytes = numBytes;
+                writeTimeoutTask = timeoutQueue.schedule(this::onWriteTimeout, options.writeTimeout());
+                return;
+            }
+            writtenBytes += numBytes;
+            if (numBytes > 0) { // progress, restart stall timer
+                writeTimeoutTask.cancel();
+                writeTimeoutTask = timeoutQueue.schedule(this::onWriteTimeout, options.writeTimeout());
+            }
+            long elapsed = now - writeStartTime;
+            if (options.minWriteRate() > 0
+                    && elapsed >= RATE_GRACE_PERIOD
+                    && writtenBytes * NANOS_PER_SECOND / elapsed < options.minWriteRate()) {
+                if (logger.enabled()) {
+                    logger.log(
+                            new LogEntry("event", "write_rate_close"),
+                            new LogEntry("id", id),
+                            new LogEntry("num_bytes", Long.toString(writtenBytes)),
+                            new LogEntry("elapsed_millis", Long.toString(elapsed / 1_000_000)));
+                }
+                failSafeClose();
             }
         }
 
         private void failSafeClose() {
+            if (!closed) {
+                closed = true;
+                connectionCount.decrementAndGet();
+            }
+            if (idle) {
+                leaveIdle();
+            }
+            if (permitHeld) {
+                permitHeld = false;
+                options.concurrencyLimiter().abandon();
+            }
             if (requestTimeoutTask != null) {
                 requestTimeoutTask.cancel();
             }
+            if (headerTimeoutTask != null) {
+                headerTimeoutTask.cancel();
+            }
+            if (writeTimeoutTask != null) {
+                writeTimeoutTask.cancel();
+            }
             selectionKey.cancel();
-            closeQuietly(socketChannel);
+            closeQuietly(channel);
+            byteTokenizer.discard();
+            if (writeBuffer != null) {
+                releaseWriteBuffer();
+            }
+            account();
+            if (context != null) {
+                cancelContext();
+                context = null;
+            }
+            if (bodySubscriber != null) {
+                bodySubscriber.cancel();
+                bodySubscriber = null;
+            }
+            if (session != null) {
+                ProtocolSession upgraded = session;
+                session = null;
+                upgraded.onConnectionClose();
+                account(); // session bytes no longer held
+            }
+        }
+
+        private void releaseWriteBuffer() {
+            if (writeBufferPooled) {
+                bufferPool.release(writeBuffer.array());
+            }
+            writeBuffer = null;
         }
     }
 
     int numConnections() {
-        return selector.keys().size();
+        return connectionCount.get() + pendingCount.get();
+    }
+
+    /**
+     * Indicates whether a new connection can be accepted, either within the maximum or by evicting an idle one.
+     */
+    boolean hasCapacity() {
+        return belowMaxConnections() || hasIdleConnections();
+    }
+
+    boolean belowMaxConnections() {
+        return numConnections() < maxConnections;
+    }
+
+    boolean hasIdleConnections() {
+        return idleCount.get() > 0;
+    }
+
+    BufferPoolStats bufferPoolStats() {
+        return bufferPool.stats();
     }
 
     void start() {
@@ -331,16 +2365,27 @@ class ConnectionEventLoop {
             for (SelectionKey selKey : selector.keys()) {
                 Object attachment = selKey.attachment();
                 if (attachment instanceof Connection connection) {
+                    if (connection.session instanceof Connection.Http2Session http2) {
+                        http2.onShutdown();
+                    }
                     connection.failSafeClose();
                 }
             }
             closeQuietly(selector);
+            if (compressor != null) {
+                compressor.close();
+            }
         }
     }
 
     private void doStart() throws IOException {
         while (!stop.get()) {
-            selector.select(options.resolution().toMillis());
+            if (readyToRead()) {
+                selector.selectNow(); // buffered input waiting, poll without blocking
+            } else {
+                selector.select(options.resolution().toMillis());
+            }
+            wakeupPending.set(false); // tasks enqueued from here on require another wakeup, tasks before are drained below
             Set<SelectionKey> selectedKeys = selector.selectedKeys();
             Iterator<SelectionKey> it = selectedKeys.iterator();
             while (it.hasNext()) {
@@ -357,25 +2402,146 @@ class ConnectionEventLoop {
             while ((task = taskQueue.poll()) != null) {
                 task.run();
             }
+            readBufferedInput();
+            enforceMemoryBudget();
+        }
+    }
+
+    private boolean readyToRead() {
+        for (Connection connection : bufferedReads) {
+            if (!connection.closed && (connection.selectionKey.interestOps() & SelectionKey.OP_READ) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read again from TLS connections holding decrypted input, which the selector does not report as readable.
+     * Connections not reading at the moment, such as those with a request in flight, remain in the set.
+     */
+    private void readBufferedInput() {
+        if (bufferedReads.isEmpty()) {
+            return;
+        }
+        List<Connection> connections = new ArrayList<>(bufferedReads);
+        bufferedReads.clear();
+        for (Connection connection : connections) {
+            if (connection.closed) {
+                continue;
+            }
+            if ((connection.selectionKey.interestOps() & SelectionKey.OP_READ) != 0) {
+                connection.onReadable(); // added again if input remains
+            } else {
+                bufferedReads.add(connection);
+            }
+        }
+    }
+
+    private boolean overBudget() {
+        return memoryBudget.exceeded(bufferedBytes - publishedBytes);
+    }
+
+    private void enforceMemoryBudget() {
+        memoryBudget.add(bufferedBytes - publishedBytes);
+        publishedBytes = bufferedBytes;
+        if (memoryBudget.exceeded(0)) {
+            if (!pauseReads()) { // nothing left to pause
+                Connection largest = largestConsumer();
+                if (largest != null) {
+                    largest.onExceedBudget();
+                }
+            }
+        } else if (!pausedConnections.isEmpty()) {
+            for (Connection connection : pausedConnections) {
+                if (connection.selectionKey.isValid()) {
+                    connection.resume();
+                }
+            }
+            pausedConnections.clear();
+        }
+    }
+
+    /**
+     * Pause reading on connections reading a partial request. Returns false if there were none to pause.
+     */
+    private boolean pauseReads() {
+        boolean paused = false;
+        for (SelectionKey selKey : selector.keys()) {
+            if (selKey.isValid() && selKey.attachment() instanceof Connection connection
+                    && connection.requestStarted
+                    && connection.session == null
+                    && connection.context == null
+                    && selKey.interestOps() == SelectionKey.OP_READ) {
+                connection.pauseReading();
+                paused = true;
+            }
         }
+        return paused;
     }
 
-    void register(SocketChannel socketChannel) {
+    /**
+     * Connection holding the most bytes, or null if there is none. Connections writing a response are skipped,
+     * since written responses release their buffers, and slow readers are bounded by the write timeout and
+     * minimum write rate instead. Connections with a deferred dispatch are skipped, since they hold no more
+     * than one complete request and are bounded by the request timeout.
+     */
+    private Connection largestConsumer() {
+        Connection largest = null;
+        for (SelectionKey selKey : selector.keys()) {
+            if (selKey.isValid() && selKey.attachment() instanceof Connection connection) {
+                if ((connection.writeBuffer != null && connection.writeBufferPooled) || connection.dispatchPaused) {
+                    continue;
+                }
+                if (connection.bufferedBytes > 0
+                        && (largest == null || connection.bufferedBytes > largest.bufferedBytes)) {
+                    largest = connection;
+                }
+            }
+        }
+        return largest;
+    }
+
+    void register(SocketChannel socketChannel, Handler handler) {
+        pendingCount.incrementAndGet();
         taskQueue.add(() -> {
             try {
-                doRegister(socketChannel);
+                doRegister(socketChannel, handler);
             } catch (IOException e) {
                 logger.log(e, new LogEntry("event", "register_error"));
                 closeQuietly(socketChannel);
+            } finally {
+                pendingCount.decrementAndGet();
             }
         });
-        selector.wakeup(); // wakeup event loop thread to process task immediately
+        wakeup(); // wakeup event loop thread to process task immediately
     }
 
-    private void doRegister(SocketChannel socketChannel) throws IOException {
+    /**
+     * Wake the event loop thread to drain the task queue, unless a wakeup is already pending.
+     * Tasks enqueued by other threads before the event loop thread observes the pending wakeup
+     * are drained together, so a burst of completions costs a single wakeup.
+     */
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void doRegister(SocketChannel socketChannel, Handler handler) throws IOException {
+        if (connectionCount.get() >= maxConnections) {
+            if (idleConnections.isEmpty()) { // idle connection left or was evicted since selection
+                if (logger.enabled()) {
+                    logger.log(new LogEntry("event", "accept_reject"));
+                }
+                closeQuietly(socketChannel);
+                return;
+            }
+            idleConnections.iterator().next().onEvict(); // least-recently-used idle connection
+        }
         socketChannel.configureBlocking(false);
         SelectionKey selectionKey = socketChannel.register(selector, SelectionKey.OP_READ);
-        Connection connection = new Connection(socketChannel, selectionKey);
+        Connection connection = new Connection(socketChannel, handler, selectionKey);
         selectionKey.attach(connection);
         if (logger.enabled()) {
             logger.log(
@@ -0,0 +1,113 @@
+package org.microhttp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Context is a cancellation signal tied to the connection of an in-flight request.
+ * <p>
+ * The context is cancelled when the connection closes before the response callback is invoked,
+ * or when the client closes its end of the connection while the request is being handled.
+ * Handlers performing asynchronous work may poll {@link #cancelled()} or register a listener
+ * with {@link #onCancel(Runnable)} to abandon that work early.
+ * <p>
+ * The context also provides an {@link EventLoopExecutor} bound to the event loop of the connection,
+ * for continuations and timers that run without additional threads.
+ * <p>
+ * When the client closes its end of the connection, a response supplied by the handler after cancellation is still
+ * written. The connection is closed if no response arrives within the request timeout.
+ * <p>
+ * Context is thread-safe. Cancel listeners run on the thread that cancels the context, which is the event loop thread
+ * for contexts created by an event loop, or immediately on the registering thread if the context is already cancelled.
+ * Contexts not created by an event loop are never cancelled by one, and their executor is not bound to any loop.
+ * Listeners must be non-blocking!
+ */
+public final class Context {
+
+    private final EventLoopExecutor executor;
+    private final List<Runnable> listeners;
+    private volatile boolean cancelled;
+
+    Context() {
+        this(DetachedExecutor.INSTANCE);
+    }
+
+    Context(EventLoopExecutor executor) {
+        this.executor = executor;
+        listeners = new ArrayList<>();
+    }
+
+    public boolean cancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Executor and timer bound to the event loop of the connection.
+     */
+    public EventLoopExecutor executor() {
+        return executor;
+    }
+
+    /**
+     * Register a listener to run upon cancellation.
+     * The listener runs immediately on the calling thread if the context is already cancelled.
+     */
+    public void onCancel(Runnable listener) {
+        synchronized (listeners) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    void cancel() {
+        List<Runnable> snapshot;
+        synchronized (listeners) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            snapshot = List.copyOf(listeners);
+            listeners.clear();
+        }
+        for (Runnable listener : snapshot) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Executor for contexts not created by an event loop.
+     * Tasks run on the calling thread, and scheduled tasks run on the common fork-join pool.
+     */
+    private static class DetachedExecutor implements EventLoopExecutor {
+        static final DetachedExecutor INSTANCE = new DetachedExecutor();
+
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public Cancellable schedule(Runnable task, Duration delay) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS)
+                    .execute(() -> {
+                        if (future.complete(null)) {
+                            task.run();
+                        }
+                    });
+            return () -> future.cancel(false);
+        }
+
+        @Override
+        public boolean inEventLoop() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package org.microhttp;
+
+import java.util.function.Consumer;
+
+/**
+ * HTTP request handler that receives the {@link Context} of each request.
+ */
+@FunctionalInterface
+public interface ContextHandler extends Handler {
+
+    @Override
+    void handle(Request request, Context context, Consumer<Response> callback);
+
+    /**
+     * Handle HTTP request with a context that is never cancelled.
+     */
+    @Override
+    default void handle(Request request, Consumer<Response> callback) {
+        handle(request, new Context(), callback);
+    }
+
+}
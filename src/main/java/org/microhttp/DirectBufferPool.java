@@ -0,0 +1,45 @@
+package org.microhttp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * DirectBufferPool is a cache of off-heap byte buffers of a single size.
+ * Each {@link ConnectionEventLoop} with TLS enabled has its own pool. TLS connections borrow buffers
+ * to hold encrypted bytes and release them as soon as they are drained, so idle connections hold none.
+ * <p>
+ * Released buffers are retained for reuse until the total size of retained buffers reaches the pool capacity.
+ * <p>
+ * DirectBufferPool is not thread-safe. Only the owning event loop thread may borrow and release buffers.
+ */
+class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free;
+
+    DirectBufferPool(int bufferSize, long capacity) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = (int) Math.min(Integer.MAX_VALUE, capacity / bufferSize);
+        this.free = new ArrayDeque<>();
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Borrow a cleared buffer.
+     */
+    ByteBuffer borrow() {
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void release(ByteBuffer buffer) {
+        if (free.size() < maxPooled) {
+            free.push(buffer);
+        }
+    }
+
+}
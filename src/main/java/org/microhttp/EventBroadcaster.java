@@ -0,0 +1,47 @@
+package org.microhttp;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EventBroadcaster fans out Server-Sent Events to a group of {@link EventStream} instances.
+ * <p>
+ * Each event is serialized once. Streams are grouped by the event loop of their connection,
+ * and a broadcast submits a single task per event loop that delivers the event to every stream on that loop.
+ * Streams are removed from the group when they close.
+ * <p>
+ * EventBroadcaster is thread-safe.
+ */
+public class EventBroadcaster {
+
+    private final Map<EventLoopExecutor, Set<EventStream>> streams;
+
+    public EventBroadcaster() {
+        streams = new ConcurrentHashMap<>();
+    }
+
+    public void add(EventStream stream) {
+        streams.computeIfAbsent(stream.executor(), k -> ConcurrentHashMap.newKeySet()).add(stream);
+        stream.onClose(() -> streams.get(stream.executor()).remove(stream));
+    }
+
+    public int size() {
+        return streams.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public void broadcast(ServerSentEvent event) {
+        ByteBuffer serialized = ByteBuffer.wrap(event.serialize()).asReadOnlyBuffer();
+        streams.forEach((executor, group) -> {
+            if (!group.isEmpty()) {
+                executor.execute(() -> {
+                    for (EventStream stream : group) {
+                        stream.deliver(serialized.duplicate()); // independent position per connection
+                    }
+                });
+            }
+        });
+    }
+
+}
@@ -3,11 +3,22 @@ package org.microhttp;
 import static org.microhttp.CloseUtils.closeQuietly;
 
 import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
 import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -19,6 +30,14 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * EventLoop is an HTTP server implementation. It provides connection management, network I/O,
  * request parsing, and request dispatching.
+ * <p>
+ * The server listens on a TCP address by default, or on a Unix domain socket if a socket path is configured.
+ * Alternatively, it listens on several {@link Listener} addresses, each with its own handler.
+ * All listeners share the accept thread and the connection event loops.
+ * <p>
+ * A stale socket file left at a Unix domain socket path by a previous process is replaced,
+ * and the socket file is deleted when the event loop terminates. Binding fails if a live server accepts
+ * connections at the path.
  */
 public class EventLoop {
 
@@ -27,7 +46,8 @@ public class EventLoop {
 
     private final Selector selector;
     private final AtomicBoolean stop;
-    private final ServerSocketChannel serverSocketChannel;
+    private final List<ServerSocketChannel> serverSocketChannels; // in order of listeners
+    private final List<Path> socketPaths; // Unix domain socket files to delete on termination
     private final List<ConnectionEventLoop> connectionEventLoops;
     private final Thread thread;
 
@@ -40,6 +60,16 @@ public class EventLoop {
     }
 
     public EventLoop(Options options, Logger logger, Handler handler) throws IOException {
+        this(options, logger, List.of(new Listener(defaultAddress(options), handler)));
+    }
+
+    /**
+     * Event loop serving the provided listeners. The host, port and Unix socket path of the options are ignored.
+     */
+    public EventLoop(Options options, Logger logger, List<Listener> listeners) throws IOException {
+        if (listeners.isEmpty()) {
+            throw new IllegalArgumentException("at least one listener is required");
+        }
         this.options = options;
         this.logger = logger;
 
@@ -47,31 +77,126 @@ public class EventLoop {
         stop = new AtomicBoolean();
 
         AtomicLong connectionCounter = new AtomicLong();
+        MemoryBudget memoryBudget = new MemoryBudget(options.maxBufferedBytes());
         connectionEventLoops = new ArrayList<>();
         for (int i = 0; i < options.concurrency(); i++) {
-            connectionEventLoops.add(new ConnectionEventLoop(options, logger, handler, connectionCounter, stop));
+            connectionEventLoops.add(new ConnectionEventLoop(
+                    options, logger, connectionCounter, stop, memoryBudget));
         }
 
         thread = new Thread(this::run, "event-loop");
 
-        InetSocketAddress address = options.host() == null
+        serverSocketChannels = new ArrayList<>();
+        socketPaths = new ArrayList<>();
+        try {
+            for (Listener listener : listeners) {
+                ServerSocketChannel channel = listener.address() instanceof UnixDomainSocketAddress a
+                        ? openUnix(options, a.getPath())
+                        : openInet(options, listener.address());
+                serverSocketChannels.add(channel);
+                channel.register(selector, SelectionKey.OP_ACCEPT, listener);
+            }
+        } catch (IOException | RuntimeException e) { // release addresses bound so far
+            closeListeners();
+            closeQuietly(selector);
+            throw e;
+        }
+    }
+
+    private static SocketAddress defaultAddress(Options options) {
+        if (options.unixSocketPath() != null) {
+            return UnixDomainSocketAddress.of(options.unixSocketPath());
+        }
+        return options.host() == null
                 ? new InetSocketAddress(options.port()) // wildcard address
                 : new InetSocketAddress(options.host(), options.port());
+    }
 
-        serverSocketChannel = ServerSocketChannel.open();
+    private static ServerSocketChannel openInet(Options options, SocketAddress address) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
         if (options.reuseAddr()) {
-            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, options.reuseAddr());
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, options.reuseAddr());
         }
         if (options.reusePort()) {
-            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEPORT, options.reusePort());
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, options.reusePort());
+        }
+        channel.configureBlocking(false);
+        channel.bind(address, options.acceptLength());
+        return channel;
+    }
+
+    private ServerSocketChannel openUnix(Options options, Path path) throws IOException {
+        deleteStaleSocket(path);
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.configureBlocking(false);
+        try {
+            channel.bind(UnixDomainSocketAddress.of(path), options.acceptLength());
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        socketPaths.add(path);
+        if (options.unixSocketPermissions() != null) {
+            try {
+                Files.setPosixFilePermissions(path, options.unixSocketPermissions());
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(channel);
+                throw e;
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Delete a socket file left behind by a process that did not terminate cleanly.
+     * A socket file is stale only if connecting to it is refused. Regular files and directories
+     * are never deleted, so binding to them fails as usual.
+     */
+    private static void deleteStaleSocket(Path path) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!attributes.isOther()) {
+            return;
         }
-        serverSocketChannel.configureBlocking(false);
-        serverSocketChannel.bind(address, options.acceptLength());
-        serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+        try {
+            closeQuietly(SocketChannel.open(UnixDomainSocketAddress.of(path)));
+        } catch (ConnectException e) { // no server listening
+            Files.delete(path);
+            return;
+        }
+        throw new BindException("address in use: " + path);
     }
 
+    /**
+     * TCP port of the first listener, or -1 if it is a Unix domain socket.
+     */
     public int getPort() throws IOException {
-        return serverSocketChannel.getLocalAddress() instanceof InetSocketAddress a ? a.getPort() : -1;
+        return serverSocketChannels.get(0).getLocalAddress() instanceof InetSocketAddress a ? a.getPort() : -1;
+    }
+
+    /**
+     * Bound addresses of all listeners, in order of listeners. Ephemeral ports are resolved.
+     */
+    public List<SocketAddress> getAddresses() throws IOException {
+        List<SocketAddress> addresses = new ArrayList<>();
+        for (ServerSocketChannel channel : serverSocketChannels) {
+            addresses.add(channel.getLocalAddress());
+        }
+        return addresses;
+    }
+
+    /**
+     * Usage metrics of the buffer pools of all connection event loops, combined.
+     */
+    public BufferPoolStats bufferPoolStats() {
+        return connectionEventLoops.stream()
+                .map(ConnectionEventLoop::bufferPoolStats)
+                .reduce(BufferPoolStats::plus)
+                .get();
     }
 
     public void start() {
@@ -89,7 +214,22 @@ public class EventLoop {
             stop.set(true); // stop the world on critical error
         } finally {
             closeQuietly(selector);
-            closeQuietly(serverSocketChannel);
+            closeListeners();
+        }
+    }
+
+    private void closeListeners() {
+        serverSocketChannels.forEach(CloseUtils::closeQuietly);
+        for (Path path : socketPaths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                if (logger.enabled()) {
+                    logger.log(e,
+                            new LogEntry("event", "unix_socket_delete_error"),
+                            new LogEntry("path", path.toString()));
+                }
+            }
         }
     }
 
@@ -101,18 +241,57 @@ public class EventLoop {
             while (it.hasNext()) {
                 SelectionKey selKey = it.next();
                 if (selKey.isAcceptable()) {
-                    ConnectionEventLoop connectionEventLoop = leastConnections();
-                    connectionEventLoop.register(serverSocketChannel.accept());
+                    SocketChannel socketChannel = ((ServerSocketChannel) selKey.channel()).accept();
+                    if (socketChannel != null) {
+                        ConnectionEventLoop connectionEventLoop = selectConnectionEventLoop();
+                        if (connectionEventLoop != null) {
+                            connectionEventLoop.register(socketChannel, ((Listener) selKey.attachment()).handler());
+                        } else { // loops filled up since accept interest was last updated
+                            if (logger.enabled()) {
+                                logger.log(new LogEntry("event", "accept_reject"));
+                            }
+                            closeQuietly(socketChannel);
+                        }
+                    }
                 }
                 it.remove();
             }
+            updateAcceptInterest();
         }
     }
 
-    private ConnectionEventLoop leastConnections() {
-        return connectionEventLoops.stream()
+    /**
+     * Stop accepting connections when every connection event loop is full, and resume once any has capacity.
+     * Pending connections wait in the accept backlog in the meantime.
+     */
+    private void updateAcceptInterest() {
+        Set<SelectionKey> acceptKeys = selector.keys();
+        boolean accepting = acceptKeys.iterator().next().interestOps() != 0; // all keys share interest
+        boolean capacity = connectionEventLoops.stream().anyMatch(ConnectionEventLoop::hasCapacity);
+        if (accepting != capacity) {
+            acceptKeys.forEach(key -> key.interestOps(capacity ? SelectionKey.OP_ACCEPT : 0));
+            if (logger.enabled()) {
+                logger.log(new LogEntry("event", capacity ? "accept_resume" : "accept_pause"));
+            }
+        }
+    }
+
+    /**
+     * Connection event loop with the fewest connections among those below their maximum, or else a loop
+     * with an idle connection to evict, or null if no loop has capacity.
+     */
+    private ConnectionEventLoop selectConnectionEventLoop() {
+        ConnectionEventLoop selected = connectionEventLoops.stream()
+                .filter(ConnectionEventLoop::belowMaxConnections)
                 .min(Comparator.comparing(ConnectionEventLoop::numConnections))
-                .get();
+                .orElse(null);
+        if (selected != null) {
+            return selected;
+        }
+        return connectionEventLoops.stream()
+                .filter(ConnectionEventLoop::hasIdleConnections)
+                .findFirst()
+                .orElse(null);
     }
 
     public void stop() {
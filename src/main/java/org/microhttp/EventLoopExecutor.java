@@ -0,0 +1,28 @@
+package org.microhttp;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor and timer bound to the connection event loop that dispatched a request.
+ * <p>
+ * Tasks run on the event loop thread, so handlers can defer work, such as long-polling or retry backoff,
+ * and continue on the same loop without threads of their own. Tasks may be submitted from any thread.
+ * Tasks must be non-blocking! Tasks submitted after the event loop stops are dropped.
+ *
+ * @see Context#executor()
+ */
+public interface EventLoopExecutor extends Executor {
+
+    /**
+     * Run the task on the event loop thread after the provided delay.
+     * Expiration is checked once per event loop iteration, at the resolution configured in {@link Options}.
+     */
+    Cancellable schedule(Runnable task, Duration delay);
+
+    /**
+     * Indicates whether the calling thread is the event loop thread.
+     */
+    boolean inEventLoop();
+
+}
@@ -0,0 +1,216 @@
+package org.microhttp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * EventStream keeps a connection open and pushes Server-Sent Events to the client.
+ * <p>
+ * An event stream is created for a request {@link Context} and returned as a streaming response
+ * with {@link #response()}. Events are written by the event loop of the connection as the socket accepts them.
+ * Events that cannot be written yet are queued. The connection is closed if the queue exceeds its maximum size,
+ * so slow clients cannot accumulate events indefinitely.
+ * <p>
+ * A comment line is sent as a heartbeat whenever the stream has been quiet for the heartbeat interval.
+ * Heartbeats keep the connection within the idle timeout configured in {@link Options}, so the interval must be
+ * shorter than that timeout. The stream closes when the client closes its end of the connection.
+ * <p>
+ * Events may be sent from any thread. State is confined to the event loop thread of the connection.
+ *
+ * @see EventBroadcaster for fan-out of events to many streams
+ */
+public class EventStream implements Flow.Publisher<ByteBuffer> {
+
+    private static final List<Header> HEADERS = List.of(
+            new Header("Content-Type", "text/event-stream"),
+            new Header("Cache-Control", "no-cache"));
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes();
+
+    private final EventLoopExecutor executor;
+    private final int maxPending;
+    private final Duration heartbeat;
+    private final ArrayDeque<ByteBuffer> pending;
+    private final List<Runnable> closeListeners;
+
+    private Flow.Subscriber<? super ByteBuffer> subscriber;
+    private long demand;
+    private boolean completing;
+    private boolean active; // event delivered since last heartbeat check
+    private Cancellable heartbeatTask;
+    private volatile boolean closed;
+
+    public EventStream(Context context) {
+        this(context, 1_024);
+    }
+
+    public EventStream(Context context, int maxPending) {
+        this(context, maxPending, Duration.ofSeconds(15));
+    }
+
+    public EventStream(Context context, int maxPending, Duration heartbeat) {
+        this.executor = context.executor();
+        this.maxPending = maxPending;
+        this.heartbeat = heartbeat;
+        this.pending = new ArrayDeque<>();
+        this.closeListeners = new ArrayList<>();
+    }
+
+    /**
+     * Streaming response that carries this event stream.
+     */
+    public Response response() {
+        return Response.streaming(200, "OK", HEADERS, this);
+    }
+
+    public boolean closed() {
+        return closed;
+    }
+
+    public void send(ServerSentEvent event) {
+        byte[] serialized = event.serialize();
+        onLoop(() -> deliver(ByteBuffer.wrap(serialized)));
+    }
+
+    /**
+     * Complete the response once queued events are written.
+     */
+    public void close() {
+        onLoop(() -> {
+            completing = true;
+            drain();
+        });
+    }
+
+    /**
+     * Register a listener to run on the event loop thread when the stream closes,
+     * either by {@link #close()} or because the connection closed.
+     */
+    public void onClose(Runnable listener) {
+        onLoop(() -> {
+            if (closed) {
+                listener.run();
+            } else {
+                closeListeners.add(listener);
+            }
+        });
+    }
+
+    EventLoopExecutor executor() {
+        return executor;
+    }
+
+    /**
+     * Queue a serialized event for writing. Must be called on the event loop thread.
+     */
+    void deliver(ByteBuffer event) {
+        if (closed || completing) {
+            return;
+        }
+        if (pending.size() >= maxPending) {
+            Flow.Subscriber<? super ByteBuffer> s = subscriber;
+            terminate();
+            if (s != null) {
+                s.onError(new IOException("event stream overflow"));
+            }
+            return;
+        }
+        pending.add(event);
+        active = true;
+        drain();
+    }
+
+    private void onHeartbeat() {
+        if (closed) {
+            return;
+        }
+        if (!active && pending.isEmpty()) {
+            deliver(ByteBuffer.wrap(HEARTBEAT));
+        }
+        active = false;
+        if (!closed) {
+            heartbeatTask = executor.schedule(this::onHeartbeat, heartbeat);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        onLoop(() -> {
+            if (this.subscriber != null || closed) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("event stream supports a single subscriber"));
+                return;
+            }
+            this.subscriber = subscriber;
+            heartbeatTask = executor.schedule(this::onHeartbeat, heartbeat);
+            subscriber.onSubscribe(new Subscription());
+        });
+    }
+
+    private class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            onLoop(() -> {
+                demand += n;
+                drain();
+            });
+        }
+
+        @Override
+        public void cancel() {
+            onLoop(EventStream.this::terminate);
+        }
+    }
+
+    private void drain() {
+        if (subscriber == null || closed) {
+            return;
+        }
+        while (demand > 0 && !pending.isEmpty()) {
+            demand--;
+            subscriber.onNext(pending.poll());
+        }
+        if (completing && pending.isEmpty()) {
+            Flow.Subscriber<? super ByteBuffer> s = subscriber;
+            terminate();
+            s.onComplete();
+        }
+    }
+
+    private void terminate() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.clear();
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel();
+            heartbeatTask = null;
+        }
+        for (Runnable listener : closeListeners) {
+            listener.run();
+        }
+        closeListeners.clear();
+    }
+
+    private void onLoop(Runnable task) {
+        if (executor.inEventLoop()) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+}
@@ -18,4 +18,15 @@ public interface Handler {
      */
     void handle(Request request, Consumer<Response> callback);
 
+    /**
+     * Handle HTTP request with a context tied to the underlying connection.
+     * The context is cancelled if the connection closes before the callback is invoked.
+     * The default implementation ignores the context and delegates to {@link #handle(Request, Consumer)}.
+     *
+     * @see ContextHandler
+     */
+    default void handle(Request request, Context context, Consumer<Response> callback) {
+        handle(request, callback);
+    }
+
 }
@@ -0,0 +1,286 @@
+package org.microhttp;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * HPACK header compression for HTTP/2, as defined in RFC 7541.
+ * <p>
+ * The decoder supports the full format: the static table, a dynamic table bounded by the default
+ * table size of 4,096 octets, and Huffman-encoded string literals.
+ * <p>
+ * The encoder is stateless. Header fields are written as static table references where an exact match exists,
+ * and otherwise as literals without indexing and without Huffman encoding. The peer needs no dynamic table
+ * state to decode responses, and no dynamic table is kept per connection on the server.
+ */
+final class Hpack {
+
+    static final int DEFAULT_TABLE_SIZE = 4_096;
+    static final int ENTRY_OVERHEAD = 32;
+
+    private static final Header[] STATIC_TABLE = {
+            null, // indexes start at one
+            new Header(":authority", ""),
+            new Header(":method", "GET"),
+            new Header(":method", "POST"),
+            new Header(":path", "/"),
+            new Header(":path", "/index.html"),
+            new Header(":scheme", "http"),
+            new Header(":scheme", "https"),
+            new Header(":status", "200"),
+            new Header(":status", "204"),
+            new Header(":status", "206"),
+            new Header(":status", "304"),
+            new Header(":status", "400"),
+            new Header(":status", "404"),
+            new Header(":status", "500"),
+            new Header("accept-charset", ""),
+            new Header("accept-encoding", "gzip, deflate"),
+            new Header("accept-language", ""),
+            new Header("accept-ranges", ""),
+            new Header("accept", ""),
+            new Header("access-control-allow-origin", ""),
+            new Header("age", ""),
+            new Header("allow", ""),
+            new Header("authorization", ""),
+            new Header("cache-control", ""),
+            new Header("content-disposition", ""),
+            new Header("content-encoding", ""),
+            new Header("content-language", ""),
+            new Header("content-length", ""),
+            new Header("content-location", ""),
+            new Header("content-range", ""),
+            new Header("content-type", ""),
+            new Header("cookie", ""),
+            new Header("date", ""),
+            new Header("etag", ""),
+            new Header("expect", ""),
+            new Header("expires", ""),
+            new Header("from", ""),
+            new Header("host", ""),
+            new Header("if-match", ""),
+            new Header("if-modified-since", ""),
+            new Header("if-none-match", ""),
+            new Header("if-range", ""),
+            new Header("if-unmodified-since", ""),
+            new Header("last-modified", ""),
+            new Header("link", ""),
+            new Header("location", ""),
+            new Header("max-forwards", ""),
+            new Header("proxy-authenticate", ""),
+            new Header("proxy-authorization", ""),
+            new Header("range", ""),
+            new Header("referer", ""),
+            new Header("refresh", ""),
+            new Header("retry-after", ""),
+            new Header("server", ""),
+            new Header("set-cookie", ""),
+            new Header("strict-transport-security", ""),
+            new Header("transfer-encoding", ""),
+            new Header("user-agent", ""),
+            new Header("vary", ""),
+            new Header("via", ""),
+            new Header("www-authenticate", "")
+    };
+
+    private static final Map<Header, Integer> STATIC_FIELDS = new HashMap<>();
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+
+    static {
+        for (int i = STATIC_TABLE.length - 1; i > 0; i--) { // lowest index wins
+            STATIC_FIELDS.put(STATIC_TABLE[i], i);
+            STATIC_NAMES.put(STATIC_TABLE[i].name(), i);
+        }
+    }
+
+    private Hpack() {
+    }
+
+    /**
+     * Encode a header block. Names are lowercased, as HTTP/2 requires.
+     */
+    static byte[] encode(List<Header> headers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Header header : headers) {
+            Header field = new Header(header.name().toLowerCase(Locale.ROOT), header.value());
+            Integer index = STATIC_FIELDS.get(field);
+            if (index != null) { // indexed header field
+                writeInt(out, 0x80, 7, index);
+                continue;
+            }
+            Integer nameIndex = STATIC_NAMES.get(field.name()); // literal header field without indexing
+            writeInt(out, 0x00, 4, nameIndex != null ? nameIndex : 0);
+            if (nameIndex == null) {
+                writeString(out, field.name());
+            }
+            writeString(out, field.value());
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int pattern, int prefixBits, int value) {
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            out.write(pattern | value);
+            return;
+        }
+        out.write(pattern | max);
+        value -= max;
+        while (value >= 0x80) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, 0x00, 7, bytes.length); // Huffman flag clear
+        out.writeBytes(bytes);
+    }
+
+    /**
+     * Decoder of header blocks received on one connection. The dynamic table spans all header blocks
+     * of the connection, so every block must be decoded in order, including those of refused streams.
+     */
+    static final class Decoder {
+
+        private record Entry(Header header, int size) {
+        }
+
+        private final List<Entry> dynamicTable = new ArrayList<>(); // oldest first
+        private int tableSize;
+        private int maxTableSize = DEFAULT_TABLE_SIZE;
+
+        private byte[] block;
+        private int position;
+
+        /**
+         * Decode a complete header block. Decoding stops with an error if the decoded header list,
+         * measured as in SETTINGS_MAX_HEADER_LIST_SIZE, exceeds the provided maximum.
+         */
+        List<Header> decode(byte[] block, int maxHeaderListSize) {
+            this.block = block;
+            position = 0;
+            List<Header> headers = new ArrayList<>();
+            int listSize = 0;
+            while (position < block.length) {
+                int b = block[position] & 0xFF;
+                Header header;
+                if ((b & 0x80) != 0) { // indexed header field
+                    header = indexed(readInt(7)).header;
+                } else if ((b & 0xC0) == 0x40) { // literal header field with incremental indexing
+                    header = literal(6);
+                    insert(header);
+                } else if ((b & 0xE0) == 0x20) { // dynamic table size update
+                    if (!headers.isEmpty()) {
+                        throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "table size update after header field");
+                    }
+                    int size = readInt(5);
+                    if (size > DEFAULT_TABLE_SIZE) {
+                        throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "table size exceeds maximum");
+                    }
+                    maxTableSize = size;
+                    evict(0);
+                    continue;
+                } else { // literal header field without indexing or never indexed
+                    header = literal(4);
+                }
+                listSize += size(header);
+                if (listSize > maxHeaderListSize) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "header list exceeds maximum size");
+                }
+                headers.add(header);
+            }
+            this.block = null;
+            return headers;
+        }
+
+        int tableSize() {
+            return tableSize;
+        }
+
+        private Entry indexed(int index) {
+            if (index <= 0) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "invalid index");
+            }
+            if (index < STATIC_TABLE.length) {
+                Header header = STATIC_TABLE[index];
+                return new Entry(header, size(header));
+            }
+            int dynamicIndex = index - STATIC_TABLE.length; // zero is the newest entry
+            if (dynamicIndex >= dynamicTable.size()) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "invalid index");
+            }
+            return dynamicTable.get(dynamicTable.size() - 1 - dynamicIndex);
+        }
+
+        private Header literal(int prefixBits) {
+            int nameIndex = readInt(prefixBits);
+            String name = nameIndex == 0 ? readString() : indexed(nameIndex).header.name();
+            return new Header(name, readString());
+        }
+
+        private void insert(Header header) {
+            int size = size(header);
+            evict(size);
+            if (size <= maxTableSize) { // an entry larger than the table empties the table
+                dynamicTable.add(new Entry(header, size));
+                tableSize += size;
+            }
+        }
+
+        private void evict(int room) {
+            while (!dynamicTable.isEmpty() && tableSize + room > maxTableSize) {
+                tableSize -= dynamicTable.remove(0).size;
+            }
+        }
+
+        private int readInt(int prefixBits) {
+            int max = (1 << prefixBits) - 1;
+            int value = block[position++] & max;
+            if (value < max) {
+                return value;
+            }
+            for (int shift = 0; ; shift += 7) {
+                if (position == block.length || shift > 21) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "invalid integer");
+                }
+                int b = block[position++] & 0xFF;
+                value += (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        private String readString() {
+            if (position == block.length) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "truncated string literal");
+            }
+            boolean huffman = (block[position] & 0x80) != 0;
+            int length = readInt(7);
+            if (length > block.length - position) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "truncated string literal");
+            }
+            byte[] bytes = huffman
+                    ? Huffman.decode(block, position, length)
+                    : Arrays.copyOfRange(block, position, position + length);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static int size(Header header) {
+            return header.name().getBytes(StandardCharsets.UTF_8).length
+                    + header.value().getBytes(StandardCharsets.UTF_8).length
+                    + ENTRY_OVERHEAD;
+        }
+    }
+
+}
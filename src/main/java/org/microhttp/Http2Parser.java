@@ -0,0 +1,70 @@
+package org.microhttp;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Incremental parser of HTTP/2 frames, reading from a {@link ByteTokenizer}
+ * in the manner of {@link RequestParser}.
+ */
+class Http2Parser {
+
+    enum State {
+        HEADER(p -> p.tokenizer.next(Http2Frame.HEADER_LENGTH), Http2Parser::parseHeader),
+        PAYLOAD(p -> p.tokenizer.next(p.length), Http2Parser::parsePayload),
+        DONE(null, null);
+
+        final Function<Http2Parser, byte[]> tokenSupplier;
+        final BiConsumer<Http2Parser, byte[]> tokenConsumer;
+
+        State(Function<Http2Parser, byte[]> tokenSupplier, BiConsumer<Http2Parser, byte[]> tokenConsumer) {
+            this.tokenSupplier = tokenSupplier;
+            this.tokenConsumer = tokenConsumer;
+        }
+    }
+
+    private final ByteTokenizer tokenizer;
+
+    private State state = State.HEADER;
+    private int length;
+    private int type;
+    private int flags;
+    private int streamId;
+    private byte[] payload;
+
+    Http2Parser(ByteTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    boolean parse() {
+        while (state != State.DONE) {
+            byte[] token = state.tokenSupplier.apply(this);
+            if (token == null) {
+                return false;
+            }
+            state.tokenConsumer.accept(this, token);
+        }
+        return true;
+    }
+
+    Http2Frame frame() {
+        return new Http2Frame(type, flags, streamId, payload);
+    }
+
+    private void parseHeader(byte[] token) {
+        length = ((token[0] & 0xFF) << 16) | ((token[1] & 0xFF) << 8) | (token[2] & 0xFF);
+        if (length > Http2Frame.DEFAULT_MAX_FRAME_SIZE) { // the server does not advertise a larger frame size
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "frame exceeds maximum size");
+        }
+        type = token[3] & 0xFF;
+        flags = token[4] & 0xFF;
+        streamId = Http2Frame.getInt(token, 5) & 0x7FFFFFFF; // reserved bit ignored
+        state = State.PAYLOAD;
+    }
+
+    private void parsePayload(byte[] token) {
+        payload = token;
+        state = State.DONE;
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.microhttp;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+
+/**
+ * Listener is a server socket address along with the handler of requests that arrive on it.
+ * <p>
+ * The address is either an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+ * All listeners of an {@link EventLoop} share its accept thread and connection event loops,
+ * so serving several ports costs no more threads, selectors, or buffers than serving one.
+ */
+public record Listener(SocketAddress address, Handler handler) {
+
+    /**
+     * Listener on the provided TCP port of the wildcard address.
+     */
+    public Listener(int port, Handler handler) {
+        this(new InetSocketAddress(port), handler);
+    }
+
+    /**
+     * Listener on the provided TCP host and port.
+     */
+    public Listener(String host, int port, Handler handler) {
+        this(new InetSocketAddress(host, port), handler);
+    }
+
+    /**
+     * Listener on the Unix domain socket at the provided path.
+     */
+    public Listener(Path path, Handler handler) {
+        this(UnixDomainSocketAddress.of(path), handler);
+    }
+
+}
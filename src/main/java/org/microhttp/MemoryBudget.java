@@ -0,0 +1,39 @@
+package org.microhttp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MemoryBudget tracks the number of request and response bytes buffered by connections
+ * across all connection event loops of an {@link EventLoop}.
+ * <p>
+ * Event loops account for changes locally and publish the net change once per loop iteration,
+ * so the shared counter is not contended on every read and write.
+ */
+class MemoryBudget {
+
+    private final long limit;
+    private final AtomicLong used;
+
+    MemoryBudget(long limit) {
+        this.limit = limit;
+        this.used = new AtomicLong();
+    }
+
+    void add(long delta) {
+        if (delta != 0) {
+            used.addAndGet(delta);
+        }
+    }
+
+    long used() {
+        return used.get();
+    }
+
+    /**
+     * Indicates whether the budget is exceeded, counting an additional delta not yet published.
+     */
+    boolean exceeded(long unpublished) {
+        return used.get() + unpublished > limit;
+    }
+
+}
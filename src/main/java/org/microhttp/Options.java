@@ -1,10 +1,20 @@
 package org.microhttp;
 
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
 import java.time.Duration;
+import java.util.Set;
+import javax.net.ssl.SSLContext;
 
 public record Options(String host, int port, boolean reuseAddr, boolean reusePort, Duration resolution,
                       Duration requestTimeout, int readBufferSize, int acceptLength, int maxRequestSize,
-                      int concurrency) {
+                      int concurrency, long bufferPoolCapacity, long maxBufferedBytes,
+                      Duration writeTimeout, int minWriteRate, int minRequestRate, int maxHeaderSize,
+                      Duration headerTimeout, Duration idleTimeout, int maxConnections,
+                      ConcurrencyLimiter concurrencyLimiter, ResponseCache responseCache,
+                      boolean http2, SSLContext sslContext,
+                      Path unixSocketPath, Set<PosixFilePermission> unixSocketPermissions,
+                      boolean compression, int compressionThreshold, int compressionLevel) {
 
     public static OptionsBuilder builder() {
         return OptionsBuilder.newBuilder();
@@ -1,6 +1,11 @@
 package org.microhttp;
 
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
 import java.time.Duration;
+import java.util.Set;
+import java.util.zip.Deflater;
+import javax.net.ssl.SSLContext;
 
 public class OptionsBuilder {
     private String host;
@@ -13,6 +18,24 @@ public class OptionsBuilder {
     private int acceptLength;
     private int maxRequestSize;
     private int concurrency;
+    private long bufferPoolCapacity;
+    private long maxBufferedBytes;
+    private Duration writeTimeout;
+    private int minWriteRate;
+    private int minRequestRate;
+    private int maxHeaderSize;
+    private Duration headerTimeout;
+    private Duration idleTimeout;
+    private int maxConnections;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private ResponseCache responseCache;
+    private boolean http2;
+    private SSLContext sslContext;
+    private Path unixSocketPath;
+    private Set<PosixFilePermission> unixSocketPermissions;
+    private boolean compression;
+    private int compressionThreshold;
+    private int compressionLevel;
 
     private OptionsBuilder() {
         this.host = "localhost";
@@ -25,6 +48,24 @@ public class OptionsBuilder {
         this.acceptLength = 0;
         this.maxRequestSize = 1_024 * 1_024;
         this.concurrency = Runtime.getRuntime().availableProcessors();
+        this.bufferPoolCapacity = 1_024 * 1_024 * 4;
+        this.maxBufferedBytes = Long.MAX_VALUE;
+        this.writeTimeout = Duration.ofSeconds(60);
+        this.minWriteRate = 0;
+        this.minRequestRate = 0;
+        this.maxHeaderSize = 1_024 * 16;
+        this.headerTimeout = Duration.ofSeconds(10);
+        this.idleTimeout = Duration.ofSeconds(60);
+        this.maxConnections = Integer.MAX_VALUE;
+        this.concurrencyLimiter = null;
+        this.responseCache = null;
+        this.http2 = false;
+        this.sslContext = null;
+        this.unixSocketPath = null;
+        this.unixSocketPermissions = null;
+        this.compression = false;
+        this.compressionThreshold = 1_024;
+        this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
     }
 
     public static OptionsBuilder newBuilder() {
@@ -41,7 +82,25 @@ public class OptionsBuilder {
             this.readBufferSize,
             this.acceptLength,
             this.maxRequestSize,
-            this.concurrency);
+            this.concurrency,
+            this.bufferPoolCapacity,
+            this.maxBufferedBytes,
+            this.writeTimeout,
+            this.minWriteRate,
+            this.minRequestRate,
+            this.maxHeaderSize,
+            this.headerTimeout,
+            this.idleTimeout,
+            this.maxConnections,
+            this.concurrencyLimiter,
+            this.responseCache,
+            this.http2,
+            this.sslContext,
+            this.unixSocketPath,
+            this.unixSocketPermissions,
+            this.compression,
+            this.compressionThreshold,
+            this.compressionLevel);
     }
 
     public OptionsBuilder withHost(String host) {
@@ -93,4 +152,94 @@ public class OptionsBuilder {
         this.concurrency = concurrency;
         return this;
     }
+
+    public OptionsBuilder withBufferPoolCapacity(long bufferPoolCapacity) {
+        this.bufferPoolCapacity = bufferPoolCapacity;
+        return this;
+    }
+
+    public OptionsBuilder withMaxBufferedBytes(long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+        return this;
+    }
+
+    public OptionsBuilder withWriteTimeout(Duration writeTimeout) {
+        this.writeTimeout = writeTimeout;
+        return this;
+    }
+
+    public OptionsBuilder withMinWriteRate(int minWriteRate) {
+        this.minWriteRate = minWriteRate;
+        return this;
+    }
+
+    public OptionsBuilder withMinRequestRate(int minRequestRate) {
+        this.minRequestRate = minRequestRate;
+        return this;
+    }
+
+    public OptionsBuilder withMaxHeaderSize(int maxHeaderSize) {
+        this.maxHeaderSize = maxHeaderSize;
+        return this;
+    }
+
+    public OptionsBuilder withHeaderTimeout(Duration headerTimeout) {
+        this.headerTimeout = headerTimeout;
+        return this;
+    }
+
+    public OptionsBuilder withIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public OptionsBuilder withMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public OptionsBuilder withConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    public OptionsBuilder withResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public OptionsBuilder withHttp2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
+    public OptionsBuilder withSslContext(SSLContext sslContext) {
+        this.sslContext = sslContext;
+        return this;
+    }
+
+    public OptionsBuilder withUnixSocketPath(Path unixSocketPath) {
+        this.unixSocketPath = unixSocketPath;
+        return this;
+    }
+
+    public OptionsBuilder withUnixSocketPermissions(Set<PosixFilePermission> unixSocketPermissions) {
+        this.unixSocketPermissions = unixSocketPermissions;
+        return this;
+    }
+
+    public OptionsBuilder withCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public OptionsBuilder withCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    public OptionsBuilder withCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
 }
@@ -0,0 +1,48 @@
+package org.microhttp;
+
+/**
+ * Path parameters captured by a {@link Router} match.
+ * <p>
+ * Parameters are held as offsets into the request URI. Values are extracted only when accessed,
+ * and they are not percent-decoded. The value of a wildcard parameter, named {@code *},
+ * is the remainder of the path following the wildcard position.
+ */
+public final class PathParams {
+
+    static final PathParams EMPTY = new PathParams("", new String[0], new int[0]);
+
+    private final String uri;
+    private final String[] names;
+    private final int[] offsets; // start and end of each value, in order of names
+
+    PathParams(String uri, String[] names, int[] offsets) {
+        this.uri = uri;
+        this.names = names;
+        this.offsets = offsets;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    public String value(int index) {
+        return uri.substring(offsets[index * 2], offsets[index * 2 + 1]);
+    }
+
+    /**
+     * Value of the named parameter, or null if the matched route has no such parameter.
+     */
+    public String get(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return value(i);
+            }
+        }
+        return null;
+    }
+
+}
@@ -1,10 +1,14 @@
 package org.microhttp;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Request objects represent discrete HTTP requests with request line, headers, and body.
  * Request objects have no hidden references to the network protocol layer that produced them.
+ * <p>
+ * URI components are not parsed up front. The path, query, and query parameter accessors scan the URI
+ * when called and allocate only the returned value. Values are percent-decoded as UTF-8 only if they contain escapes.
  */
 public record Request(
         String method,
@@ -22,6 +26,76 @@ public record Request(
         return null;
     }
 
+    /**
+     * Path of the URI, up to the query or fragment, not percent-decoded.
+     */
+    public String rawPath() {
+        return UriUtils.substring(uri, 0, UriUtils.pathEnd(uri));
+    }
+
+    /**
+     * Percent-decoded path of the URI.
+     */
+    public String path() {
+        return UriUtils.decode(uri, 0, UriUtils.pathEnd(uri), false);
+    }
+
+    /**
+     * Query of the URI, without the leading question mark, not percent-decoded.
+     * Returns null if the URI has no query.
+     */
+    public String rawQuery() {
+        int start = UriUtils.pathEnd(uri);
+        if (start == uri.length() || uri.charAt(start) != '?') {
+            return null;
+        }
+        return uri.substring(start + 1, UriUtils.queryEnd(uri, start));
+    }
+
+    /**
+     * Percent-decoded value of the first query parameter with the provided name, or null if there is none.
+     * A parameter without an equals sign has an empty value. Plus signs are decoded as spaces.
+     */
+    public String queryParam(String name) {
+        List<String> values = queryParams(name, true);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Percent-decoded values of all query parameters with the provided name, in order of appearance.
+     */
+    public List<String> queryParams(String name) {
+        return queryParams(name, false);
+    }
+
+    private List<String> queryParams(String name, boolean first) {
+        int start = UriUtils.pathEnd(uri);
+        if (start == uri.length() || uri.charAt(start) != '?') {
+            return List.of();
+        }
+        int end = UriUtils.queryEnd(uri, start);
+        List<String> values = null;
+        int pos = start + 1;
+        while (pos <= end) {
+            int ampersand = uri.indexOf('&', pos);
+            int pairEnd = ampersand < 0 || ampersand > end ? end : ampersand;
+            int equals = uri.indexOf('=', pos);
+            int nameEnd = equals < 0 || equals > pairEnd ? pairEnd : equals;
+            if (UriUtils.decodedEquals(uri, pos, nameEnd, name, true)) {
+                String value = nameEnd == pairEnd ? "" : UriUtils.decode(uri, nameEnd + 1, pairEnd, true);
+                if (first) {
+                    return List.of(value);
+                }
+                if (values == null) {
+                    values = new ArrayList<>();
+                }
+                values.add(value);
+            }
+            pos = pairEnd + 1;
+        }
+        return values == null ? List.of() : values;
+    }
+
     public boolean hasHeader(String name, String value) {
         for (Header header : headers) {
             if (header.name().equalsIgnoreCase(name) && header.value().equalsIgnoreCase(value)) {
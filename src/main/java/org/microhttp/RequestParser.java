@@ -44,6 +44,7 @@ class RequestParser {
     private int contentLength;
     private int chunkSize;
     private ByteMerger chunks = new ByteMerger();
+    private int headerSize;
 
     private String method;
     private String uri;
@@ -66,6 +67,21 @@ class RequestParser {
         return true;
     }
 
+    /**
+     * Indicates whether the request line and header section have been parsed completely.
+     */
+    boolean headersParsed() {
+        return state.compareTo(State.HEADER) > 0; // states after HEADER pertain to the body
+    }
+
+    /**
+     * Size of the request line and header section, or the number of bytes received so far
+     * if the header section is incomplete.
+     */
+    int headerSize() {
+        return headersParsed() ? headerSize : tokenizer.size();
+    }
+
     Request request() {
         return new Request(method, uri, version, headers, body);
     }
@@ -87,6 +103,7 @@ class RequestParser {
 
     private void parseHeader(byte[] token) {
         if (token.length == 0) { // CR-LF on own line, end of headers
+            headerSize = tokenizer.size() - tokenizer.remaining();
             if (hasMultipleTransferLengths()) {
                 throw new IllegalStateException("multiple message lengths");
             }
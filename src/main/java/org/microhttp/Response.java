@@ -1,12 +1,57 @@
 package org.microhttp;
 
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.Flow;
 
 public record Response(
         int status,
         String reason,
         List<Header> headers,
-        byte[] body) {
+        byte[] body,
+        Flow.Publisher<ByteBuffer> publisher,
+        WebSocketHandler webSocketHandler) {
+
+    public Response(int status, String reason, List<Header> headers, byte[] body) {
+        this(status, reason, headers, body, null, null);
+    }
+
+    public Response(int status, String reason, List<Header> headers, byte[] body, Flow.Publisher<ByteBuffer> publisher) {
+        this(status, reason, headers, body, publisher, null);
+    }
+
+    /**
+     * Response with a body streamed from the provided publisher.
+     * The body is written with chunked transfer encoding, or delimited by connection close for HTTP 1.0 clients.
+     * Buffers are requested one at a time, as the preceding buffer is written to the socket,
+     * and must not be modified after they are published. A Content-Length header is removed, since it conflicts
+     * with the framing of the body. The connection is closed if the next buffer is not published within the idle timeout.
+     */
+    public static Response streaming(int status, String reason, List<Header> headers,
+                                     Flow.Publisher<ByteBuffer> publisher) {
+        return new Response(status, reason, headers, new byte[0], publisher);
+    }
+
+    /**
+     * Response that accepts a WebSocket upgrade request. Once the response is written, the connection carries
+     * WebSocket frames handled by the provided handler on the event loop of the connection.
+     * A request that is not a valid upgrade request receives a 400 response instead.
+     * Upgrades are supported on HTTP/1.1 connections only.
+     */
+    public static Response webSocket(Request request, WebSocketHandler handler) {
+        if (!WebSocketHandshake.isUpgrade(request)) {
+            return new Response(400, "Bad Request", List.of(), new byte[0]);
+        }
+        return WebSocketHandshake.response(request, handler);
+    }
+
+    public boolean streaming() {
+        return publisher != null;
+    }
+
+    public boolean upgrade() {
+        return webSocketHandler != null;
+    }
 
     public boolean hasHeader(String name) {
         for (Header header : headers) {
@@ -22,7 +67,17 @@ public record Response(
     static final byte[] CRLF = "\r\n".getBytes();
 
     byte[] serialize(String version, List<Header> headers) {
-        ByteMerger merger = new ByteMerger();
+        return merger(version, headers).merge();
+    }
+
+    ByteBuffer serialize(String version, List<Header> headers, BufferPool pool) {
+        return merger(version, headers).merge(pool);
+    }
+
+    /**
+     * Append the serialized response to the provided merger, as when several responses share a write buffer.
+     */
+    void serialize(String version, List<Header> headers, ByteMerger merger) {
         merger.add(version.getBytes());
         merger.add(SPACE);
         merger.add(Integer.toString(status).getBytes());
@@ -33,7 +88,12 @@ public record Response(
         appendHeaders(merger, this.headers);
         merger.add(CRLF);
         merger.add(body);
-        return merger.merge();
+    }
+
+    private ByteMerger merger(String version, List<Header> headers) {
+        ByteMerger merger = new ByteMerger();
+        serialize(version, headers, merger);
+        return merger;
     }
 
     private static void appendHeaders(ByteMerger merger, List<Header> headers) {
@@ -0,0 +1,182 @@
+package org.microhttp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResponseCache holds serialized responses to GET requests for a fixed time-to-live.
+ * <p>
+ * Entries are keyed by method, URI, HTTP version, persistence, and the values of the configured vary headers,
+ * as well as the handler that produced the response, since listeners of an {@link EventLoop} may have different handlers,
+ * and the negotiated content coding, so compressed variants are cached and served without compressing again.
+ * Each entry holds the exact bytes written to the network, so hits are answered by connection event loops
+ * without invoking the handler or serializing the response again.
+ * <p>
+ * Requests that carry credentials, in an Authorization or Cookie header, are never cached.
+ * Only 200 responses with a complete body, without a Cache-Control no-store or private directive,
+ * and without a Set-Cookie header are cached. A response with a Vary header is cached only if every
+ * header it names is part of the key, either as a configured vary header or as the negotiated content coding.
+ * Total serialized size is bounded. Least-recently-used entries are evicted to make room for new entries,
+ * and expired entries are evicted on lookup.
+ * <p>
+ * ResponseCache is thread-safe and may be shared by all connection event loops of an {@link EventLoop}.
+ */
+public class ResponseCache {
+
+    private static final String METHOD_GET = "GET";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_AUTHORIZATION = "Authorization";
+    private static final String HEADER_COOKIE = "Cookie";
+    private static final String HEADER_SET_COOKIE = "Set-Cookie";
+    private static final String HEADER_VARY = "Vary";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+    record Key(Handler handler, String method, String uri, String version, boolean keepAlive, String encoding,
+               List<String> vary) {
+    }
+
+    private record Entry(byte[] bytes, long expiry) {
+    }
+
+    private final long maxBytes;
+    private final long ttl;
+    private final List<String> varyHeaders;
+    private final LinkedHashMap<Key, Entry> entries; // least-recently-used first
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    private long bytes;
+
+    public ResponseCache(long maxBytes, Duration ttl, String... varyHeaders) {
+        this.maxBytes = maxBytes;
+        this.ttl = ttl.toNanos();
+        this.varyHeaders = List.of(varyHeaders);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Cache key for the provided request to the provided handler, or null if the request is not eligible for caching.
+     * The encoding is the content coding negotiated for the response, or null if none.
+     */
+    Key key(Handler handler, Request request, String version, boolean keepAlive, String encoding) {
+        if (!request.method().equals(METHOD_GET)) {
+            return null;
+        }
+        if (request.header(HEADER_AUTHORIZATION) != null || request.header(HEADER_COOKIE) != null) {
+            return null; // response may be specific to the user
+        }
+        List<String> vary = new ArrayList<>(varyHeaders.size());
+        for (String name : varyHeaders) {
+            vary.add(request.header(name));
+        }
+        return new Key(handler, request.method(), request.uri(), version, keepAlive, encoding, vary);
+    }
+
+    /**
+     * Serialized response for the provided key, or null if there is no unexpired entry.
+     */
+    synchronized byte[] get(Key key, long now) {
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.expiry >= 0) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.bytes;
+    }
+
+    /**
+     * Indicates whether the provided response may be cached.
+     * The coding keyed flag indicates whether the key includes the negotiated content coding,
+     * in which case a response may vary by Accept-Encoding.
+     */
+    boolean cacheable(Response response, boolean codingKeyed) {
+        if (response.status() != 200 || response.streaming()) {
+            return false;
+        }
+        for (Header header : response.headers()) {
+            if (header.name().equalsIgnoreCase(HEADER_CACHE_CONTROL)) {
+                String value = header.value().toLowerCase(Locale.ROOT);
+                if (value.contains("no-store") || value.contains("private")) {
+                    return false;
+                }
+            } else if (header.name().equalsIgnoreCase(HEADER_SET_COOKIE)) {
+                return false;
+            } else if (header.name().equalsIgnoreCase(HEADER_VARY) && !keyed(header.value(), codingKeyed)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean keyed(String vary, boolean codingKeyed) {
+        for (String element : vary.split(",")) {
+            String name = element.trim();
+            if (name.isEmpty() || (codingKeyed && name.equalsIgnoreCase(HEADER_ACCEPT_ENCODING))) {
+                continue;
+            }
+            boolean found = false;
+            for (String varyHeader : varyHeaders) {
+                if (varyHeader.equalsIgnoreCase(name)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) { // includes *
+                return false;
+            }
+        }
+        return true;
+    }
+
+    synchronized void put(Key key, byte[] serialized, long now) {
+        if (serialized.length > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(serialized, now + ttl));
+        bytes += serialized.length;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= it.next().getValue().bytes.length;
+            it.remove();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.bytes.length;
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package org.microhttp;
+
+import java.util.function.Consumer;
+
+/**
+ * HTTP request handler of a {@link Router} route. It receives the path parameters captured by the route pattern
+ * in addition to the request context. The contract of {@link Handler} applies.
+ */
+@FunctionalInterface
+public interface RouteHandler {
+
+    void handle(Request request, PathParams params, Context context, Consumer<Response> callback);
+
+}
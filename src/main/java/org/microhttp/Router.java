@@ -0,0 +1,220 @@
+package org.microhttp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Router is a {@link Handler} that dispatches requests to route handlers by method and URI path.
+ * <p>
+ * Route patterns are compiled into a character trie. A pattern is a path of literal segments,
+ * parameter segments such as {@code {id}}, and an optional trailing wildcard segment {@code *}
+ * that matches the remainder of the path. For example, {@code /users/{id}/posts} and {@code /static/*}.
+ * <p>
+ * Matching walks the trie along the characters of the request URI, up to the query string.
+ * Literal segments take precedence over parameters, and parameters over wildcards.
+ * The cost of a match depends on the length of the path, not on the number of routes.
+ * Parameters are captured as offsets into the URI, without extracting segments.
+ * <p>
+ * Requests that match no route are passed to the fallback handler, which responds with 404 by default.
+ * Requests that match a route path but not its method receive a 405 response with an Allow header.
+ * <p>
+ * Routes must be added before the event loop is started. Router is thread-safe thereafter.
+ */
+public class Router implements ContextHandler {
+
+    private static final Response NOT_FOUND = new Response(404, "Not Found", List.of(), new byte[0]);
+    private static final int[] NO_OFFSETS = new int[0];
+
+    private record Route(String method, String[] names, RouteHandler handler) {
+    }
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        Node param; // parameter segment
+        Node wildcard; // remainder of path, always a leaf
+        Route[] routes; // routes ending at this node, null if none
+        Response methodNotAllowed;
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char key) {
+            Node child = child(key);
+            if (child == null) {
+                child = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = key;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+
+        boolean branches() {
+            return param != null || wildcard != null;
+        }
+    }
+
+    private final Node root;
+    private final Handler fallback;
+    private int maxParams;
+
+    public Router() {
+        this((req, callback) -> callback.accept(NOT_FOUND));
+    }
+
+    public Router(Handler fallback) {
+        this.root = new Node();
+        this.fallback = fallback;
+    }
+
+    /**
+     * Add a route for the provided method and path pattern.
+     *
+     * @throws IllegalArgumentException if the pattern is malformed or the route already exists
+     */
+    public Router route(String method, String pattern, RouteHandler handler) {
+        if (pattern.isEmpty() || pattern.charAt(0) != '/') {
+            throw new IllegalArgumentException("pattern must start with /: " + pattern);
+        }
+        List<String> names = new ArrayList<>();
+        Node node = root;
+        int pos = 0;
+        while (pos < pattern.length()) {
+            char c = pattern.charAt(pos);
+            boolean segmentStart = pos > 0 && pattern.charAt(pos - 1) == '/';
+            if (segmentStart && c == '{') {
+                int close = pattern.indexOf('}', pos);
+                int next = close < 0 ? -1 : close + 1;
+                if (close < 0 || close == pos + 1 || (next < pattern.length() && pattern.charAt(next) != '/')) {
+                    throw new IllegalArgumentException("malformed parameter segment: " + pattern);
+                }
+                String name = pattern.substring(pos + 1, close);
+                if (names.contains(name)) {
+                    throw new IllegalArgumentException("duplicate parameter " + name + ": " + pattern);
+                }
+                names.add(name);
+                if (node.param == null) {
+                    node.param = new Node();
+                }
+                node = node.param;
+                pos = next;
+            } else if (segmentStart && c == '*') {
+                if (pos != pattern.length() - 1) {
+                    throw new IllegalArgumentException("wildcard must be the last segment: " + pattern);
+                }
+                names.add("*");
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+                pos++;
+            } else {
+                if (c == '{' || c == '}' || c == '*' || c == '?') {
+                    throw new IllegalArgumentException("unexpected character " + c + ": " + pattern);
+                }
+                node = node.addChild(c);
+                pos++;
+            }
+        }
+        add(node, new Route(method, names.toArray(new String[0]), handler), pattern);
+        maxParams = Math.max(maxParams, names.size());
+        return this;
+    }
+
+    private static void add(Node node, Route route, String pattern) {
+        Route[] routes = node.routes == null ? new Route[0] : node.routes;
+        StringBuilder allow = new StringBuilder(route.method);
+        for (Route r : routes) {
+            if (r.method.equals(route.method)) {
+                throw new IllegalArgumentException("duplicate route " + route.method + " " + pattern);
+            }
+            allow.append(", ").append(r.method);
+        }
+        routes = Arrays.copyOf(routes, routes.length + 1);
+        routes[routes.length - 1] = route;
+        node.routes = routes;
+        node.methodNotAllowed = new Response(
+                405, "Method Not Allowed", List.of(new Header("Allow", allow.toString())), new byte[0]);
+    }
+
+    @Override
+    public void handle(Request request, Context context, Consumer<Response> callback) {
+        String uri = request.uri();
+        int end = uri.indexOf('?');
+        int[] offsets = maxParams == 0 ? NO_OFFSETS : new int[maxParams * 2];
+        Node node = match(root, uri, 0, end < 0 ? uri.length() : end, offsets, 0);
+        if (node == null) {
+            fallback.handle(request, context, callback);
+            return;
+        }
+        for (Route route : node.routes) {
+            if (route.method.equals(request.method())) {
+                PathParams params = route.names.length == 0
+                        ? PathParams.EMPTY
+                        : new PathParams(uri, route.names, offsets);
+                route.handler.handle(request, params, context, callback);
+                return;
+            }
+        }
+        callback.accept(node.methodNotAllowed);
+    }
+
+    /**
+     * Find the node with routes that matches the path from the provided position, or null if there is none.
+     * Literal characters are followed without recursion. Recursion occurs only at segment starts where
+     * a parameter or wildcard is an alternative, so its depth is bounded by the longest pattern.
+     */
+    private static Node match(Node node, String uri, int pos, int end, int[] offsets, int depth) {
+        while (!node.branches()) {
+            if (pos == end) {
+                return node.routes != null ? node : null;
+            }
+            node = node.child(uri.charAt(pos++));
+            if (node == null) {
+                return null;
+            }
+        }
+        if (pos < end) {
+            Node child = node.child(uri.charAt(pos));
+            if (child != null) {
+                Node result = match(child, uri, pos + 1, end, offsets, depth);
+                if (result != null) {
+                    return result;
+                }
+            }
+            if (node.param != null) {
+                int segmentEnd = pos;
+                while (segmentEnd < end && uri.charAt(segmentEnd) != '/') {
+                    segmentEnd++;
+                }
+                if (segmentEnd > pos) {
+                    Node result = match(node.param, uri, segmentEnd, end, offsets, depth + 1);
+                    if (result != null) {
+                        offsets[depth * 2] = pos;
+                        offsets[depth * 2 + 1] = segmentEnd;
+                        return result;
+                    }
+                }
+            }
+        } else if (node.routes != null) {
+            return node;
+        }
+        if (node.wildcard != null) {
+            offsets[depth * 2] = pos;
+            offsets[depth * 2 + 1] = end;
+            return node.wildcard;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.microhttp;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event in the text/event-stream format of Server-Sent Events.
+ *
+ * @param id    event id, or null
+ * @param event event type, or null for the default message type
+ * @param data  event data, which may span multiple lines
+ */
+public record ServerSentEvent(String id, String event, String data) {
+
+    public static ServerSentEvent of(String data) {
+        return new ServerSentEvent(null, null, data);
+    }
+
+    byte[] serialize() {
+        StringBuilder sb = new StringBuilder();
+        if (id != null) {
+            sb.append("id: ").append(id).append('\n');
+        }
+        if (event != null) {
+            sb.append("event: ").append(event).append('\n');
+        }
+        for (String line : data.split("\r\n|\r|\n", -1)) {
+            sb.append("data: ").append(line).append('\n');
+        }
+        sb.append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,321 @@
+package org.microhttp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+/**
+ * TlsChannel is a non-blocking byte channel that encrypts and decrypts the bytes of a socket channel
+ * with an {@link SSLEngine}. It has the same contract as the underlying socket channel, so connections
+ * read and write plaintext without regard to TLS once the handshake is complete.
+ * <p>
+ * Encrypted bytes are held in direct buffers borrowed from a {@link DirectBufferPool}, only while they are
+ * in use. Records are decrypted directly into the destination buffer of a read when it has room for a full record,
+ * and otherwise into a staging buffer that is drained by subsequent reads.
+ * <p>
+ * A read may leave complete records or decrypted bytes buffered when the destination fills up.
+ * The selector does not know about those bytes, so {@link #inputReady()} tells the event loop to read again.
+ * Likewise, a write may leave encrypted bytes unsent. {@link #flushed()} tells the event loop to keep writing.
+ * <p>
+ * TlsChannel is not thread-safe, with the exception of {@link #runDelegatedTasks()}.
+ */
+class TlsChannel implements ByteChannel {
+
+    enum HandshakeStep {
+        READ, // socket must become readable
+        WRITE, // socket must become writable
+        TASK, // delegated tasks must complete
+        DONE
+    }
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final int RECORD_HEADER_LENGTH = 5;
+
+    private final SocketChannel socketChannel;
+    private final SSLEngine engine;
+    private final DirectBufferPool pool;
+
+    private ByteBuffer netIn; // encrypted bytes read from socket, in read mode, null if none
+    private ByteBuffer netOut; // encrypted bytes to be written to socket, in read mode, null if none
+    private ByteBuffer appIn; // decrypted bytes not yet read, in read mode, null if none
+    private boolean closed;
+
+    TlsChannel(SocketChannel socketChannel, SSLEngine engine, DirectBufferPool pool) {
+        this.socketChannel = socketChannel;
+        this.engine = engine;
+        this.pool = pool;
+    }
+
+    SSLEngine engine() {
+        return engine;
+    }
+
+    /**
+     * Advance the handshake as far as possible without blocking.
+     */
+    HandshakeStep handshake() throws IOException {
+        while (true) {
+            if (!flush()) {
+                return HandshakeStep.WRITE;
+            }
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    return HandshakeStep.TASK;
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    if (!unwrapHandshake()) {
+                        return HandshakeStep.READ;
+                    }
+                    break;
+                default:
+                    releaseEmpty();
+                    return HandshakeStep.DONE;
+            }
+        }
+    }
+
+    /**
+     * Run the tasks that the engine delegated during the handshake. Called on a worker thread.
+     */
+    void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private boolean unwrapHandshake() throws IOException {
+        if (netIn != null && netIn.hasRemaining()) {
+            if (appIn == null) {
+                appIn = pool.borrow().flip(); // application data may follow the final handshake message
+            }
+            appIn.compact();
+            SSLEngineResult result = engine.unwrap(netIn, appIn);
+            appIn.flip();
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new SSLException("connection closed during handshake");
+            }
+            if (result.getStatus() == SSLEngineResult.Status.OK) {
+                return true;
+            }
+        }
+        int n = readSocket(); // buffer underflow, more bytes needed
+        if (n < 0) {
+            throw new SSLException("connection closed during handshake");
+        }
+        return n > 0;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int start = dst.position();
+        boolean socketRead = false;
+        boolean eof = false;
+        while (dst.hasRemaining() && !drainAppIn(dst)) {
+            if (netIn != null && hasCompleteRecord(netIn)) {
+                SSLEngineResult result = unwrap(dst);
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) { // close_notify from peer
+                    eof = true;
+                    break;
+                }
+                if (result.getStatus() == SSLEngineResult.Status.OK) {
+                    onPostHandshake(result);
+                    continue;
+                }
+            }
+            if (socketRead) { // one socket read per call, as with a plain socket channel
+                break;
+            }
+            socketRead = true;
+            if (readSocket() < 0) {
+                eof = true;
+                break;
+            }
+        }
+        releaseEmpty();
+        int count = dst.position() - start;
+        if (count == 0 && eof) {
+            closeInbound();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Decrypt one record, directly into the destination if it has room for a full record.
+     */
+    private SSLEngineResult unwrap(ByteBuffer dst) throws SSLException {
+        if (dst.remaining() >= engine.getSession().getApplicationBufferSize()) {
+            return engine.unwrap(netIn, dst);
+        }
+        appIn = appIn != null ? appIn.clear() : pool.borrow(); // staging buffer is empty here
+        SSLEngineResult result = engine.unwrap(netIn, appIn);
+        appIn.flip();
+        return result;
+    }
+
+    /**
+     * Copy buffered plaintext into the destination. Returns true if plaintext remains buffered.
+     */
+    private boolean drainAppIn(ByteBuffer dst) {
+        if (appIn == null || !appIn.hasRemaining()) {
+            return false;
+        }
+        int length = Math.min(appIn.remaining(), dst.remaining());
+        dst.put(dst.position(), appIn, appIn.position(), length);
+        dst.position(dst.position() + length);
+        appIn.position(appIn.position() + length);
+        return appIn.hasRemaining();
+    }
+
+    private void onPostHandshake(SSLEngineResult result) throws IOException {
+        switch (result.getHandshakeStatus()) {
+            case NEED_WRAP -> { // key update or session ticket, sent along with the next write
+                wrap(EMPTY);
+                flush();
+            }
+            case NEED_TASK -> throw new SSLException("renegotiation not supported");
+            default -> {
+            }
+        }
+    }
+
+    private int readSocket() throws IOException {
+        if (netIn == null) {
+            netIn = pool.borrow().flip();
+        }
+        netIn.compact();
+        int n = socketChannel.read(netIn);
+        netIn.flip();
+        return n;
+    }
+
+    private static boolean hasCompleteRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER_LENGTH) {
+            return false;
+        }
+        int p = buffer.position();
+        int length = ((buffer.get(p + 3) & 0xFF) << 8) | (buffer.get(p + 4) & 0xFF);
+        return buffer.remaining() >= RECORD_HEADER_LENGTH + length;
+    }
+
+    /**
+     * Indicates whether decrypted bytes or complete records are buffered, ready to be read without the socket.
+     */
+    boolean inputReady() {
+        return (appIn != null && appIn.hasRemaining()) || (netIn != null && hasCompleteRecord(netIn));
+    }
+
+    /**
+     * Indicates whether every encrypted byte has been written to the socket.
+     */
+    boolean flushed() {
+        return netOut == null;
+    }
+
+    /**
+     * Encrypt and write as much of the source as possible. Encrypted bytes that cannot be written
+     * are retained and written first on the next call. Returns the number of plaintext bytes consumed.
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int consumed = 0;
+        while (flush() && src.hasRemaining()) {
+            consumed += wrap(src);
+        }
+        return consumed;
+    }
+
+    private int wrap(ByteBuffer src) throws IOException {
+        if (netOut == null) {
+            netOut = pool.borrow().flip();
+        }
+        netOut.compact();
+        SSLEngineResult result = engine.wrap(src, netOut);
+        netOut.flip();
+        if (result.getStatus() == SSLEngineResult.Status.CLOSED && !closed) {
+            throw new SSLException("engine closed");
+        }
+        if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            throw new SSLException("record exceeds packet buffer size");
+        }
+        return result.bytesConsumed();
+    }
+
+    /**
+     * Write pending encrypted bytes. Returns true if none remain.
+     */
+    private boolean flush() throws IOException {
+        if (netOut == null) {
+            return true;
+        }
+        socketChannel.write(netOut);
+        if (netOut.hasRemaining()) {
+            return false;
+        }
+        pool.release(netOut);
+        netOut = null;
+        return true;
+    }
+
+    private void closeInbound() {
+        try {
+            engine.closeInbound();
+        } catch (SSLException ignore) {
+            // peer closed without close_notify
+        }
+    }
+
+    private void releaseEmpty() {
+        if (netIn != null && !netIn.hasRemaining()) {
+            pool.release(netIn);
+            netIn = null;
+        }
+        if (appIn != null && !appIn.hasRemaining()) {
+            pool.release(appIn);
+            appIn = null;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socketChannel.isOpen();
+    }
+
+    /**
+     * Send close_notify if the socket accepts it without blocking, then close the socket
+     * and release all buffers.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                engine.closeOutbound();
+                if (flush()) {
+                    wrap(EMPTY);
+                    flush();
+                }
+            } catch (IOException ignore) {
+                // best effort
+            }
+        }
+        socketChannel.close();
+        for (ByteBuffer buffer : new ByteBuffer[]{netIn, netOut, appIn}) {
+            if (buffer != null) {
+                pool.release(buffer);
+            }
+        }
+        netIn = null;
+        netOut = null;
+        appIn = null;
+    }
+
+}
@@ -0,0 +1,89 @@
+package org.microhttp;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Scanning and percent-decoding of URI components in place, without splitting the URI.
+ * Decoding is lenient. A percent sign not followed by two hex digits is retained literally.
+ */
+class UriUtils {
+
+    /**
+     * Index of the end of the path, the start of the query or fragment delimiter, or the length of the URI.
+     */
+    static int pathEnd(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return uri.length();
+    }
+
+    /**
+     * Index of the end of the query, the start of the fragment delimiter, or the length of the URI.
+     */
+    static int queryEnd(String uri, int start) {
+        int hash = uri.indexOf('#', start);
+        return hash < 0 ? uri.length() : hash;
+    }
+
+    static String substring(String s, int start, int end) {
+        return start == 0 && end == s.length() ? s : s.substring(start, end);
+    }
+
+    static boolean needsDecoding(String s, int start, int end, boolean plusAsSpace) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || (plusAsSpace && c == '+')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decode the provided range as UTF-8. Returns the range itself if it contains no escapes.
+     */
+    static String decode(String s, int start, int end, boolean plusAsSpace) {
+        if (!needsDecoding(s, start, end, plusAsSpace)) {
+            return substring(s, start, end);
+        }
+        byte[] bytes = new byte[(end - start) * 3]; // upper bound, unescaped chars take at most 3 UTF-8 bytes
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            int hi;
+            int lo;
+            if (c == '%' && i + 2 < end && (hi = Character.digit(s.charAt(i + 1), 16)) >= 0
+                    && (lo = Character.digit(s.charAt(i + 2), 16)) >= 0) {
+                bytes[length++] = (byte) ((hi << 4) | lo);
+                i += 2;
+            } else if (c == '+' && plusAsSpace) {
+                bytes[length++] = ' ';
+            } else if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else { // raw non-ASCII, possibly a surrogate pair
+                int charCount = Character.isHighSurrogate(c) && i + 1 < end ? 2 : 1;
+                byte[] encoded = s.substring(i, i + charCount).getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                length += encoded.length;
+                i += charCount - 1;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Indicates whether the provided range, once decoded, equals the provided value.
+     * Ranges without escapes are compared in place.
+     */
+    static boolean decodedEquals(String s, int start, int end, String value, boolean plusAsSpace) {
+        if (!needsDecoding(s, start, end, plusAsSpace)) {
+            return end - start == value.length() && s.regionMatches(start, value, 0, value.length());
+        }
+        return decode(s, start, end, plusAsSpace).equals(value);
+    }
+
+}
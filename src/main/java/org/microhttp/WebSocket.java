@@ -0,0 +1,33 @@
+package org.microhttp;
+
+/**
+ * Server end of a WebSocket connection, established by an HTTP/1.1 upgrade.
+ * <p>
+ * Messages may be sent from any thread. Outgoing frames are queued and written by the event loop
+ * of the connection in order.
+ *
+ * @see WebSocketHandler
+ */
+public interface WebSocket {
+
+    /**
+     * Upgrade request that established the connection.
+     */
+    Request request();
+
+    void sendText(String message);
+
+    void sendBinary(byte[] message);
+
+    /**
+     * Start the closing handshake. The connection closes once the client acknowledges.
+     * The reason is truncated on a character boundary to the 123 bytes of UTF-8 that fit in a close frame.
+     *
+     * @throws IllegalArgumentException if the status code may not be sent in a close frame,
+     *                                  such as codes below 1000 and the reserved codes 1004 through 1006 and 1015
+     */
+    void close(int code, String reason);
+
+    boolean closed();
+
+}
@@ -0,0 +1,22 @@
+package org.microhttp;
+
+/**
+ * WebSocket protocol error, carrying the status code sent to the peer in a close frame.
+ * Status codes are defined in RFC 6455 Section 7.4.1.
+ */
+class WebSocketException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int PROTOCOL_ERROR = 1002;
+    static final int INVALID_PAYLOAD = 1007;
+    static final int MESSAGE_TOO_BIG = 1009;
+
+    final int closeCode;
+
+    WebSocketException(int closeCode, String message) {
+        super(message);
+        this.closeCode = closeCode;
+    }
+
+}
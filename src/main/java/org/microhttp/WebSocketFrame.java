@@ -0,0 +1,63 @@
+package org.microhttp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * WebSocket frame as defined by RFC 6455, with an unmasked payload.
+ */
+record WebSocketFrame(boolean fin, int opcode, byte[] payload) {
+
+    static final int CONTINUATION = 0x0;
+    static final int TEXT = 0x1;
+    static final int BINARY = 0x2;
+    static final int CLOSE = 0x8;
+    static final int PING = 0x9;
+    static final int PONG = 0xA;
+
+    static final int MAX_CONTROL_PAYLOAD = 125;
+
+    static boolean control(int opcode) {
+        return (opcode & 0x8) != 0;
+    }
+
+    /**
+     * Encode an unfragmented, unmasked server frame into an array borrowed from the provided pool.
+     */
+    static ByteBuffer encode(int opcode, byte[] payload, BufferPool pool) {
+        int headerLength = payload.length <= 125 ? 2 : payload.length <= 0xFFFF ? 4 : 10;
+        int size = headerLength + payload.length;
+        ByteBuffer frame = ByteBuffer.wrap(pool.borrow(size), 0, size);
+        frame.put((byte) (0x80 | opcode)); // FIN
+        if (headerLength == 2) {
+            frame.put((byte) payload.length);
+        } else if (headerLength == 4) {
+            frame.put((byte) 126).putShort((short) payload.length);
+        } else {
+            frame.put((byte) 127).putLong(payload.length);
+        }
+        frame.put(payload).flip();
+        return frame;
+    }
+
+    /**
+     * Apply the masking key to a region of the buffer in place, eight bytes at a time.
+     * Masking and unmasking are the same operation. Works with heap and direct buffers alike,
+     * using absolute access so the position and limit of the buffer are unchanged.
+     */
+    static void mask(ByteBuffer buffer, int offset, int length, byte[] key) {
+        long word = ((key[0] & 0xFFL) << 24) | ((key[1] & 0xFFL) << 16) | ((key[2] & 0xFFL) << 8) | (key[3] & 0xFFL);
+        word |= word << 32;
+        if (buffer.order() == ByteOrder.LITTLE_ENDIAN) {
+            word = Long.reverseBytes(word);
+        }
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            buffer.putLong(offset + i, buffer.getLong(offset + i) ^ word);
+        }
+        for (; i < length; i++) { // key index continues from a multiple of eight
+            buffer.put(offset + i, (byte) (buffer.get(offset + i) ^ key[i & 3]));
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.microhttp;
+
+/**
+ * WebSocket message handler.
+ * These methods are called on the event loop thread of the connection. They must be non-blocking!
+ */
+public interface WebSocketHandler {
+
+    /**
+     * Called once the upgrade response is written.
+     */
+    default void onOpen(WebSocket webSocket) {
+    }
+
+    /**
+     * Called for each complete text message. Fragmented messages are reassembled.
+     */
+    default void onText(WebSocket webSocket, String message) {
+    }
+
+    /**
+     * Called for each complete binary message. Fragmented messages are reassembled.
+     */
+    default void onBinary(WebSocket webSocket, byte[] message) {
+    }
+
+    /**
+     * Called once the connection closes, with the status code of the closing handshake,
+     * or 1006 if the connection closed without one.
+     */
+    default void onClose(WebSocket webSocket, int code, String reason) {
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.microhttp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Server side of the WebSocket opening handshake, RFC 6455 section 4.2.
+ */
+class WebSocketHandshake {
+
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final String VERSION = "13";
+
+    private static final String HEADER_UPGRADE = "Upgrade";
+    private static final String HEADER_CONNECTION = "Connection";
+    private static final String HEADER_KEY = "Sec-WebSocket-Key";
+    private static final String HEADER_VERSION = "Sec-WebSocket-Version";
+    private static final String HEADER_ACCEPT = "Sec-WebSocket-Accept";
+
+    /**
+     * Indicates whether the request is a valid WebSocket upgrade request.
+     */
+    static boolean isUpgrade(Request request) {
+        return request.method().equals("GET")
+                && request.version().equalsIgnoreCase("HTTP/1.1")
+                && hasToken(request.header(HEADER_UPGRADE), "websocket")
+                && hasToken(request.header(HEADER_CONNECTION), "upgrade")
+                && request.header(HEADER_KEY) != null
+                && VERSION.equals(request.header(HEADER_VERSION));
+    }
+
+    static Response response(Request request, WebSocketHandler handler) {
+        return new Response(101, "Switching Protocols", List.of(
+                new Header(HEADER_UPGRADE, "websocket"),
+                new Header(HEADER_CONNECTION, HEADER_UPGRADE),
+                new Header(HEADER_ACCEPT, accept(request.header(HEADER_KEY)))), new byte[0], null, handler);
+    }
+
+    static String accept(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((key.trim() + GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-1 is required of every Java platform
+        }
+    }
+
+    private static boolean hasToken(String value, String token) {
+        if (value == null) {
+            return false;
+        }
+        for (String part : value.split(",")) {
+            if (part.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.microhttp;
+
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Incremental parser of client WebSocket frames, reading from a {@link ByteTokenizer}
+ * in the manner of {@link RequestParser}.
+ */
+class WebSocketParser {
+
+    enum State {
+        HEADER(p -> p.tokenizer.next(2), WebSocketParser::parseHeader),
+        LENGTH_16(p -> p.tokenizer.next(2), WebSocketParser::parseLength),
+        LENGTH_64(p -> p.tokenizer.next(8), WebSocketParser::parseLength),
+        MASK(p -> p.tokenizer.next(4), WebSocketParser::parseMask),
+        PAYLOAD(p -> p.tokenizer.next(p.payloadLength), WebSocketParser::parsePayload),
+        DONE(null, null);
+
+        final Function<WebSocketParser, byte[]> tokenSupplier;
+        final BiConsumer<WebSocketParser, byte[]> tokenConsumer;
+
+        State(Function<WebSocketParser, byte[]> tokenSupplier, BiConsumer<WebSocketParser, byte[]> tokenConsumer) {
+            this.tokenSupplier = tokenSupplier;
+            this.tokenConsumer = tokenConsumer;
+        }
+    }
+
+    private final ByteTokenizer tokenizer;
+    private final int maxPayloadLength;
+
+    private State state = State.HEADER;
+    private boolean fin;
+    private int opcode;
+    private int payloadLength;
+    private byte[] mask;
+    private byte[] payload;
+
+    WebSocketParser(ByteTokenizer tokenizer, int maxPayloadLength) {
+        this.tokenizer = tokenizer;
+        this.maxPayloadLength = maxPayloadLength;
+    }
+
+    boolean parse() {
+        while (state != State.DONE) {
+            byte[] token = state.tokenSupplier.apply(this);
+            if (token == null) {
+                return false;
+            }
+            state.tokenConsumer.accept(this, token);
+        }
+        return true;
+    }
+
+    WebSocketFrame frame() {
+        return new WebSocketFrame(fin, opcode, payload);
+    }
+
+    private void parseHeader(byte[] token) {
+        fin = (token[0] & 0x80) != 0;
+        if ((token[0] & 0x70) != 0) {
+            throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "reserved bits set");
+        }
+        opcode = token[0] & 0x0F;
+        if ((token[1] & 0x80) == 0) {
+            throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "unmasked client frame");
+        }
+        int length = token[1] & 0x7F;
+        boolean control = WebSocketFrame.control(opcode);
+        if (control && (!fin || length > WebSocketFrame.MAX_CONTROL_PAYLOAD)) {
+            throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "invalid control frame");
+        }
+        if (length == 126) {
+            state = State.LENGTH_16;
+        } else if (length == 127) {
+            state = State.LENGTH_64;
+        } else {
+            payloadLength = length;
+            state = State.MASK;
+        }
+    }
+
+    private void parseLength(byte[] token) {
+        long length = 0;
+        for (byte b : token) {
+            length = (length << 8) | (b & 0xFF);
+        }
+        if (length < 0) {
+            throw new WebSocketException(WebSocketException.PROTOCOL_ERROR, "invalid frame length");
+        }
+        if (length > maxPayloadLength) {
+            throw new WebSocketException(WebSocketException.MESSAGE_TOO_BIG, "frame exceeds maximum size");
+        }
+        payloadLength = (int) length;
+        state = State.MASK;
+    }
+
+    private void parseMask(byte[] token) {
+        mask = token;
+        state = State.PAYLOAD;
+    }
+
+    private void parsePayload(byte[] token) {
+        WebSocketFrame.mask(ByteBuffer.wrap(token), 0, token.length, mask);
+        payload = token;
+        state = State.DONE;
+    }
+
+}
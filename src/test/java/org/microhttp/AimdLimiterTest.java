@@ -0,0 +1,52 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class AimdLimiterTest {
+
+    static final long FAST = Duration.ofMillis(1).toNanos();
+    static final long SLOW = Duration.ofMillis(200).toNanos();
+
+    @Test
+    public void acquireUpToLimit() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, 0.5, Duration.ofMillis(100));
+        Assertions.assertTrue(limiter.acquire());
+        Assertions.assertTrue(limiter.acquire());
+        Assertions.assertFalse(limiter.acquire());
+        Assertions.assertEquals(2, limiter.inFlight());
+        limiter.abandon();
+        Assertions.assertEquals(2, limiter.limit());
+        Assertions.assertTrue(limiter.acquire());
+    }
+
+    @Test
+    public void additiveIncreaseWhenUtilized() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 3, 0.5, Duration.ofMillis(100));
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(FAST);
+        Assertions.assertEquals(3, limiter.limit());
+        limiter.release(FAST); // one of three in flight, not utilized
+        Assertions.assertEquals(3, limiter.limit());
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+        }
+        limiter.release(FAST);
+        Assertions.assertEquals(3, limiter.limit()); // bounded by max
+    }
+
+    @Test
+    public void multiplicativeDecreaseWhenSlow() {
+        AimdLimiter limiter = new AimdLimiter(8, 3, 10, 0.5, Duration.ofMillis(100));
+        limiter.acquire();
+        limiter.release(SLOW);
+        Assertions.assertEquals(4, limiter.limit());
+        limiter.acquire();
+        limiter.release(SLOW);
+        Assertions.assertEquals(3, limiter.limit()); // bounded by min
+    }
+
+}
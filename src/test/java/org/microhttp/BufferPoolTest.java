@@ -0,0 +1,53 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+public class BufferPoolTest {
+
+    @Test
+    public void borrowRoundsUpToSizeClass() {
+        BufferPool pool = new BufferPool(1_024 * 1_024);
+        Assertions.assertEquals(1_024, pool.borrow(1).length);
+        Assertions.assertEquals(1_024, pool.borrow(1_024).length);
+        Assertions.assertEquals(2_048, pool.borrow(1_025).length);
+        Assertions.assertEquals(new BufferPoolStats(3, 3, 0, 4_096, 0), pool.stats());
+    }
+
+    @Test
+    public void releaseAndReuse() {
+        BufferPool pool = new BufferPool(1_024 * 1_024);
+        byte[] array = pool.borrow(2_000);
+        pool.release(array);
+        Assertions.assertEquals(new BufferPoolStats(1, 1, 1, 0, 2_048), pool.stats());
+        Assertions.assertSame(array, pool.borrow(1_500));
+        Assertions.assertEquals(new BufferPoolStats(2, 1, 1, 2_048, 0), pool.stats());
+    }
+
+    @Test
+    public void capacityLimitsRetainedArrays() {
+        BufferPool pool = new BufferPool(3_072);
+        byte[] first = pool.borrow(2_048);
+        byte[] second = pool.borrow(2_048);
+        pool.release(first);
+        pool.release(second); // exceeds capacity, dropped
+        Assertions.assertEquals(new BufferPoolStats(2, 2, 2, 0, 2_048), pool.stats());
+        Assertions.assertSame(first, pool.borrow(2_048));
+        Assertions.assertNotSame(second, pool.borrow(2_048));
+    }
+
+    @Test
+    public void tokenizerBorrowsAndReleases() {
+        BufferPool pool = new BufferPool(1_024 * 1_024);
+        ByteTokenizer tokenizer = new ByteTokenizer(pool);
+        tokenizer.add(ByteBuffer.wrap("hello".getBytes()));
+        Assertions.assertEquals(1_024, tokenizer.capacity());
+        Assertions.assertArrayEquals("hello".getBytes(), tokenizer.next(5));
+        tokenizer.release();
+        Assertions.assertEquals(0, tokenizer.capacity());
+        Assertions.assertEquals(new BufferPoolStats(1, 1, 1, 0, 1_024), pool.stats());
+    }
+
+}
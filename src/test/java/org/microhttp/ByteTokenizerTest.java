@@ -14,15 +14,84 @@ public class ByteTokenizerTest {
         Assertions.assertArrayEquals("hello".getBytes(), tokenizer.next(" ".getBytes()));
         Assertions.assertEquals(11, tokenizer.capacity());
         Assertions.assertEquals(5, tokenizer.remaining());
+        Assertions.assertEquals(11, tokenizer.size());
         tokenizer.compact();
-        Assertions.assertEquals(5, tokenizer.capacity());
+        Assertions.assertEquals(11, tokenizer.capacity());
         Assertions.assertEquals(5, tokenizer.remaining());
+        Assertions.assertEquals(5, tokenizer.size());
         Assertions.assertArrayEquals("world".getBytes(), tokenizer.next(5));
         tokenizer.compact();
+        Assertions.assertEquals(11, tokenizer.capacity());
+        Assertions.assertEquals(0, tokenizer.remaining());
+        Assertions.assertEquals(0, tokenizer.size());
+    }
+
+    @Test
+    public void wrapAround() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        tokenizer.add(ByteBuffer.wrap("GET /a\r\n".getBytes()));
+        Assertions.assertArrayEquals("GET".getBytes(), tokenizer.next(" ".getBytes()));
+        tokenizer.add(ByteBuffer.wrap("GET".getBytes())); // wraps around end of array
+        Assertions.assertEquals(8, tokenizer.capacity());
+        Assertions.assertArrayEquals("/a".getBytes(), tokenizer.next("\r\n".getBytes()));
+        tokenizer.add(ByteBuffer.wrap(" /b\r\n".getBytes()));
+        Assertions.assertEquals(8, tokenizer.capacity());
+        Assertions.assertArrayEquals("GET".getBytes(), tokenizer.next(" ".getBytes()));
+        Assertions.assertArrayEquals("/b".getBytes(), tokenizer.next("\r\n".getBytes()));
+        Assertions.assertEquals(0, tokenizer.remaining());
+    }
+
+    @Test
+    public void growWhileWrapped() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        tokenizer.add(ByteBuffer.wrap("abcd".getBytes()));
+        Assertions.assertArrayEquals("abc".getBytes(), tokenizer.next(3));
+        tokenizer.add(ByteBuffer.wrap("ef".getBytes()));
+        Assertions.assertEquals(4, tokenizer.capacity());
+        tokenizer.add(ByteBuffer.wrap("ghij".getBytes()));
+        Assertions.assertEquals(8, tokenizer.capacity());
+        Assertions.assertArrayEquals("defghij".getBytes(), tokenizer.next(7));
+    }
+
+    @Test
+    public void release() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        tokenizer.add(ByteBuffer.wrap("hello world".getBytes()));
+        Assertions.assertArrayEquals("hello".getBytes(), tokenizer.next(" ".getBytes()));
+        tokenizer.release();
+        Assertions.assertEquals(11, tokenizer.capacity());
+        Assertions.assertArrayEquals("world".getBytes(), tokenizer.next(5));
+        tokenizer.release();
         Assertions.assertEquals(0, tokenizer.capacity());
+        Assertions.assertEquals(0, tokenizer.size());
         Assertions.assertEquals(0, tokenizer.remaining());
     }
 
+    @Test
+    public void attachAndDetach() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.put("hello world".getBytes()).flip();
+        tokenizer.attach(buffer);
+        Assertions.assertEquals(11, tokenizer.remaining());
+        Assertions.assertArrayEquals("hello".getBytes(), tokenizer.next(" ".getBytes()));
+        Assertions.assertNull(tokenizer.next(" ".getBytes()));
+        Assertions.assertEquals(0, tokenizer.capacity());
+        tokenizer.detach();
+        buffer.clear(); // buffer reused, tail must have been copied
+        Assertions.assertEquals(5, tokenizer.capacity());
+        Assertions.assertEquals(5, tokenizer.remaining());
+        Assertions.assertEquals(11, tokenizer.size());
+        Assertions.assertArrayEquals("world".getBytes(), tokenizer.next(5));
+    }
+
+    @Test
+    public void attachNonEmpty() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        tokenizer.add(ByteBuffer.wrap("hello".getBytes()));
+        Assertions.assertThrowsExactly(IllegalStateException.class, () -> tokenizer.attach(ByteBuffer.allocate(0)));
+    }
+
     @Test
     public void expandingArray() {
         ByteTokenizer tokenizer = new ByteTokenizer();
@@ -0,0 +1,136 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class CoalescingHandlerTest {
+
+    static final Response RESPONSE = new Response(200, "OK", List.of(), "hello".getBytes());
+
+    static Request request(String method, String uri) {
+        return request(method, uri, List.of());
+    }
+
+    static Request request(String method, String uri, List<Header> headers) {
+        return new Request(method, uri, "HTTP/1.1", headers, new byte[0]);
+    }
+
+    final List<Consumer<Response>> pending = new ArrayList<>();
+    final List<Response> received = new ArrayList<>();
+
+    @Test
+    public void coalesceIdenticalRequests() {
+        CoalescingHandler handler = new CoalescingHandler((req, callback) -> pending.add(callback));
+        for (int i = 0; i < 3; i++) {
+            handler.handle(request("GET", "/a"), received::add);
+        }
+        Assertions.assertEquals(1, pending.size());
+        Assertions.assertEquals(2, handler.coalesced());
+        pending.get(0).accept(RESPONSE);
+        Assertions.assertEquals(List.of(RESPONSE, RESPONSE, RESPONSE), received);
+
+        handler.handle(request("GET", "/a"), received::add); // nothing in flight, reaches delegate
+        Assertions.assertEquals(2, pending.size());
+    }
+
+    @Test
+    public void distinctKeys() {
+        CoalescingHandler handler = new CoalescingHandler((req, callback) -> pending.add(callback));
+        handler.handle(request("GET", "/a"), received::add);
+        handler.handle(request("GET", "/b"), received::add);
+        handler.handle(request("POST", "/a"), received::add);
+        handler.handle(request("POST", "/a"), received::add);
+        Assertions.assertEquals(4, pending.size());
+        Assertions.assertEquals(0, handler.coalesced());
+    }
+
+    @Test
+    public void varyingRequestsPassedThrough() {
+        CoalescingHandler handler = new CoalescingHandler((req, callback) -> pending.add(callback));
+        for (String name : List.of("Authorization", "Cookie", "Accept", "Accept-Encoding")) {
+            handler.handle(request("GET", "/a", List.of(new Header(name, "x"))), received::add);
+            handler.handle(request("GET", "/a", List.of(new Header(name, "x"))), received::add);
+        }
+        Assertions.assertEquals(8, pending.size());
+        Assertions.assertEquals(0, handler.coalesced());
+    }
+
+    @Test
+    public void contextCancelledWhenAllWaitersCancelled() {
+        List<Context> contexts = new ArrayList<>();
+        CoalescingHandler handler = new CoalescingHandler((ContextHandler) (req, context, callback) -> {
+            contexts.add(context);
+            pending.add(callback);
+        });
+        Context first = new Context();
+        Context second = new Context();
+        handler.handle(request("GET", "/a"), first, received::add);
+        handler.handle(request("GET", "/a"), second, received::add);
+        Assertions.assertEquals(1, contexts.size());
+        Assertions.assertSame(first.executor(), contexts.get(0).executor());
+
+        first.cancel();
+        Assertions.assertFalse(contexts.get(0).cancelled());
+        second.cancel();
+        Assertions.assertTrue(contexts.get(0).cancelled());
+
+        handler.handle(request("GET", "/a"), new Context(), received::add); // abandoned flight is not joined
+        Assertions.assertEquals(2, contexts.size());
+        Assertions.assertEquals(1, handler.coalesced());
+    }
+
+    @Test
+    public void cancelledWaiterAnsweredAfterReplacement() {
+        CoalescingHandler handler = new CoalescingHandler((req, callback) -> pending.add(callback));
+        List<Response> late = new ArrayList<>();
+        Context halfClosed = new Context();
+        handler.handle(request("GET", "/a"), halfClosed, late::add);
+        halfClosed.cancel();
+        handler.handle(request("GET", "/a"), new Context(), received::add); // replaces the abandoned flight
+        Assertions.assertEquals(2, pending.size());
+
+        pending.get(0).accept(RESPONSE);
+        Assertions.assertEquals(List.of(RESPONSE), late);
+        pending.get(0).accept(RESPONSE); // repeated callbacks are ignored
+        Assertions.assertEquals(List.of(RESPONSE), late);
+
+        handler.handle(request("GET", "/a"), new Context(), received::add); // replacement is still in flight
+        Assertions.assertEquals(2, pending.size());
+        pending.get(1).accept(RESPONSE);
+        Assertions.assertEquals(List.of(RESPONSE, RESPONSE), received);
+    }
+
+    @Test
+    public void customKey() {
+        CoalescingHandler handler = new CoalescingHandler(
+                (req, callback) -> pending.add(callback),
+                req -> req.method() + " " + req.uri());
+        handler.handle(request("POST", "/a"), received::add);
+        handler.handle(request("POST", "/a"), received::add);
+        Assertions.assertEquals(1, pending.size());
+    }
+
+    @Test
+    public void synchronousResponse() {
+        CoalescingHandler handler = new CoalescingHandler((req, callback) -> callback.accept(RESPONSE));
+        handler.handle(request("GET", "/a"), received::add);
+        handler.handle(request("GET", "/a"), received::add);
+        Assertions.assertEquals(List.of(RESPONSE, RESPONSE), received);
+        Assertions.assertEquals(0, handler.coalesced());
+    }
+
+    @Test
+    public void delegateFailure() {
+        CoalescingHandler handler = new CoalescingHandler((req, callback) -> {
+            throw new IllegalStateException();
+        });
+        Assertions.assertThrows(IllegalStateException.class, () -> handler.handle(request("GET", "/a"), received::add));
+        Assertions.assertThrows(IllegalStateException.class, () -> handler.handle(request("GET", "/a"), received::add));
+        Assertions.assertEquals(0, handler.coalesced());
+    }
+
+}
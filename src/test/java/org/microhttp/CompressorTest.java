@@ -0,0 +1,140 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class CompressorTest {
+
+    static final byte[] JSON = "{\"name\":\"value\",\"items\":[1,2,3]}".repeat(100).getBytes();
+
+    static Response json(byte[] body, Header... headers) {
+        List<Header> list = new ArrayList<>(List.of(headers));
+        list.add(new Header("Content-Type", "application/json; charset=utf-8"));
+        return new Response(200, "OK", list, body);
+    }
+
+    static String header(Response response, String name) {
+        for (Header header : response.headers()) {
+            if (header.name().equalsIgnoreCase(name)) {
+                return header.value();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void negotiate() {
+        Assertions.assertNull(Compressor.negotiate(null));
+        Assertions.assertNull(Compressor.negotiate("identity"));
+        Assertions.assertNull(Compressor.negotiate("br"));
+        Assertions.assertEquals("gzip", Compressor.negotiate("gzip"));
+        Assertions.assertEquals("gzip", Compressor.negotiate("deflate, gzip;q=0.5"));
+        Assertions.assertEquals("gzip", Compressor.negotiate("GZIP"));
+        Assertions.assertEquals("deflate", Compressor.negotiate("gzip;q=0, deflate"));
+        Assertions.assertEquals("deflate", Compressor.negotiate("br, deflate"));
+        Assertions.assertEquals("gzip", Compressor.negotiate("*"));
+        Assertions.assertEquals("deflate", Compressor.negotiate("gzip;q=0, *"));
+        Assertions.assertNull(Compressor.negotiate("*;q=0"));
+        Assertions.assertNull(Compressor.negotiate("gzip;q=0.000"));
+    }
+
+    @Test
+    public void gzip() throws IOException {
+        Compressor compressor = new Compressor(1_024, Deflater.DEFAULT_COMPRESSION);
+        Response response = compressor.apply(json(JSON, new Header("Content-Length", "3300")), "gzip");
+        Assertions.assertEquals("gzip", header(response, "Content-Encoding"));
+        Assertions.assertEquals("Accept-Encoding", header(response, "Vary"));
+        Assertions.assertNull(header(response, "Content-Length"));
+        Assertions.assertTrue(response.body().length < JSON.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            Assertions.assertArrayEquals(JSON, in.readAllBytes());
+        }
+        compressor.close();
+    }
+
+    @Test
+    public void deflate() throws IOException {
+        Compressor compressor = new Compressor(1_024, Deflater.BEST_SPEED);
+        for (int i = 0; i < 10; i++) { // pooled deflaters are reset between uses
+            Response response = compressor.apply(json(JSON), "deflate");
+            Assertions.assertEquals("deflate", header(response, "Content-Encoding"));
+            try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(response.body()))) {
+                Assertions.assertArrayEquals(JSON, in.readAllBytes());
+            }
+        }
+        compressor.close();
+    }
+
+    @Test
+    public void identityVaries() {
+        Compressor compressor = new Compressor(1_024, Deflater.DEFAULT_COMPRESSION);
+        Response response = compressor.apply(json(JSON), null);
+        Assertions.assertNull(header(response, "Content-Encoding"));
+        Assertions.assertEquals("Accept-Encoding", header(response, "Vary"));
+        Assertions.assertArrayEquals(JSON, response.body());
+    }
+
+    @Test
+    public void existingVaryMerged() {
+        Compressor compressor = new Compressor(1_024, Deflater.DEFAULT_COMPRESSION);
+        Response origin = compressor.apply(json(JSON, new Header("Vary", "Origin")), "gzip");
+        Assertions.assertEquals(List.of("Origin, Accept-Encoding"), varyValues(origin));
+        Response listed = compressor.apply(json(JSON, new Header("Vary", "origin, accept-encoding")), "gzip");
+        Assertions.assertEquals(List.of("origin, accept-encoding"), varyValues(listed));
+        Response any = compressor.apply(json(JSON, new Header("Vary", "*")), null);
+        Assertions.assertEquals(List.of("*"), varyValues(any));
+    }
+
+    static List<String> varyValues(Response response) {
+        List<String> values = new ArrayList<>();
+        for (Header header : response.headers()) {
+            if (header.name().equalsIgnoreCase("Vary")) {
+                values.add(header.value());
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void ineligibleResponses() {
+        Compressor compressor = new Compressor(1_024, Deflater.DEFAULT_COMPRESSION);
+        Response small = json("{}".getBytes());
+        Assertions.assertSame(small, compressor.apply(small, "gzip"));
+        Response image = new Response(200, "OK", List.of(new Header("Content-Type", "image/png")), JSON);
+        Assertions.assertSame(image, compressor.apply(image, "gzip"));
+        Response untyped = new Response(200, "OK", List.of(), JSON);
+        Assertions.assertSame(untyped, compressor.apply(untyped, "gzip"));
+        Response encoded = json(JSON, new Header("Content-Encoding", "br"));
+        Assertions.assertSame(encoded, compressor.apply(encoded, "gzip"));
+    }
+
+    @Test
+    public void incompressibleBodySentAsIs() {
+        byte[] random = new byte[4_096];
+        new Random(1).nextBytes(random);
+        Compressor compressor = new Compressor(1_024, Deflater.DEFAULT_COMPRESSION);
+        Response response = compressor.apply(json(random), "gzip");
+        Assertions.assertNull(header(response, "Content-Encoding"));
+        Assertions.assertArrayEquals(random, response.body());
+    }
+
+    @Test
+    public void compressibleTypes() {
+        Assertions.assertTrue(Compressor.compressible("text/html; charset=utf-8"));
+        Assertions.assertTrue(Compressor.compressible("application/problem+json"));
+        Assertions.assertTrue(Compressor.compressible("image/svg+xml"));
+        Assertions.assertTrue(Compressor.compressible("TEXT/PLAIN"));
+        Assertions.assertFalse(Compressor.compressible("application/octet-stream"));
+        Assertions.assertFalse(Compressor.compressible("image/jpeg"));
+    }
+
+}
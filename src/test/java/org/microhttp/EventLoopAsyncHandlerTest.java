@@ -0,0 +1,114 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class EventLoopAsyncHandlerTest {
+
+    static final String RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 5\r
+            \r
+            hello""";
+
+    static final String ERROR_RESPONSE = """
+            HTTP/1.1 500 Internal Server Error\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    EventLoop eventLoop;
+
+    void start(AsyncHandler handler) throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withConcurrency(1)
+                .build();
+        eventLoop = new EventLoop(options, new TestLogger(), handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+        executor.shutdown();
+    }
+
+    @Test
+    public void completeOnWorkerThread() throws IOException {
+        start((req, context) -> CompletableFuture.supplyAsync(
+                () -> new Response(200, "OK", List.of(), "hello".getBytes()), executor));
+        exchange(EventLoopTest.HTTP11_REQUEST, RESPONSE);
+    }
+
+    @Test
+    public void completeInline() throws IOException {
+        start((req, context) -> CompletableFuture.completedFuture(
+                new Response(200, "OK", List.of(), "hello".getBytes())));
+        exchange(EventLoopTest.HTTP11_REQUEST, RESPONSE);
+    }
+
+    @Test
+    public void completeExceptionally() throws IOException {
+        start((req, context) -> CompletableFuture.failedFuture(new IllegalStateException()));
+        exchange(EventLoopTest.HTTP11_REQUEST, ERROR_RESPONSE);
+    }
+
+    @Test
+    public void burstOfCompletions() throws IOException {
+        start((req, context) -> CompletableFuture.supplyAsync(
+                () -> new Response(200, "OK", List.of(), "hello".getBytes()), executor));
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                Socket socket = connect();
+                sockets.add(socket);
+                socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            }
+            for (Socket socket : sockets) {
+                Assertions.assertArrayEquals(RESPONSE.getBytes(), socket.getInputStream().readNBytes(RESPONSE.length()));
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void cancelStageOnPeerClose() throws Exception {
+        CompletableFuture<Response> stage = new CompletableFuture<>();
+        start((req, context) -> stage);
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+        }
+        Assertions.assertThrows(CancellationException.class, () -> stage.get(5, TimeUnit.SECONDS));
+    }
+
+    void exchange(String request, String response) throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(request.getBytes());
+            Assertions.assertArrayEquals(response.getBytes(), socket.getInputStream().readNBytes(response.length()));
+        }
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class EventLoopBatchHandlerTest {
+
+    static final String RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 2\r
+            \r
+            %s""";
+
+    final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    void start(BatchHandler handler) throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .build();
+        logger = new TestLogger();
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    BatchHandler echoUri() {
+        return (requests, context, callback) -> {
+            batchSizes.add(requests.size());
+            callback.accept(requests.stream()
+                    .map(r -> new Response(200, "OK", List.of(), r.uri().getBytes()))
+                    .toList());
+        };
+    }
+
+    static String request(int n) {
+        return "GET /" + n + " HTTP/1.1\r\n\r\n";
+    }
+
+    static String response(int n) {
+        return RESPONSE.formatted("/" + n);
+    }
+
+    @Test
+    public void pipelinedBatch() throws IOException {
+        start(echoUri());
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(join(4, EventLoopBatchHandlerTest::request).getBytes());
+            String expected = join(4, EventLoopBatchHandlerTest::response);
+            Assertions.assertArrayEquals(expected.getBytes(), socket.getInputStream().readNBytes(expected.length()));
+        }
+        Assertions.assertEquals(List.of(4), batchSizes); // delivered in a single read
+    }
+
+    @Test
+    public void sequentialRequests() throws IOException {
+        start(echoUri());
+        try (Socket socket = connect()) {
+            for (int i = 0; i < 3; i++) {
+                socket.getOutputStream().write(request(i).getBytes());
+                Assertions.assertArrayEquals(response(i).getBytes(), socket.getInputStream().readNBytes(response(i).length()));
+            }
+        }
+        Assertions.assertEquals(List.of(1, 1, 1), batchSizes);
+    }
+
+    @Test
+    public void stopAtNonPersistentRequest() throws IOException {
+        start(echoUri());
+        try (Socket socket = connect()) {
+            String requests = request(1) + "GET /2 HTTP/1.0\r\n\r\n" + request(3);
+            socket.getOutputStream().write(requests.getBytes());
+            String expected = response(1) + "HTTP/1.0 200 OK\r\nContent-Length: 2\r\n\r\n/2";
+            Assertions.assertArrayEquals(expected.getBytes(), socket.getInputStream().readAllBytes());
+        }
+        Assertions.assertEquals(List.of(2), batchSizes);
+    }
+
+    @Test
+    public void responseCountMismatch() throws IOException {
+        start((requests, context, callback) -> callback.accept(List.of()));
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(request(1).getBytes());
+            Assertions.assertEquals(-1, socket.getInputStream().read());
+        }
+        Assertions.assertTrue(logger.hasEventLog("batch_size_error"));
+    }
+
+    static String join(int n, IntFunction<String> f) {
+        return IntStream.range(0, n).mapToObj(f).collect(Collectors.joining());
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+}
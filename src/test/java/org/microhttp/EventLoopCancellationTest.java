@@ -0,0 +1,118 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class EventLoopCancellationTest {
+
+    static final Response OK = new Response(200, "OK", List.of(), new byte[0]);
+
+    static final String RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    record Dispatch(Context context, Consumer<Response> callback) {
+    }
+
+    TestLogger logger;
+    BlockingQueue<Dispatch> dispatches;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withConcurrency(1)
+                .withRequestTimeout(Duration.ofMillis(500))
+                .build();
+        logger = new TestLogger();
+        dispatches = new LinkedBlockingQueue<>();
+        ContextHandler handler = (req, context, callback) -> dispatches.add(new Dispatch(context, callback));
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void cancelOnPeerClose() throws Exception {
+        Dispatch dispatch;
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            dispatch = dispatches.take();
+            Assertions.assertFalse(dispatch.context().cancelled());
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        dispatch.context().onCancel(latch::countDown);
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(dispatch.context().cancelled());
+        awaitEventLog("request_cancel");
+        awaitEventLog("request_timeout"); // handler abandoned request
+        dispatch.callback().accept(OK); // late response is dropped
+        Assertions.assertFalse(logger.hasEventLog("response_ready"));
+    }
+
+    @Test
+    public void respondAfterHalfClose() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            socket.shutdownOutput();
+            Dispatch dispatch = dispatches.take();
+            awaitEventLog("request_cancel");
+            Assertions.assertTrue(dispatch.context().cancelled());
+            dispatch.callback().accept(OK);
+            Assertions.assertArrayEquals(RESPONSE.getBytes(), socket.getInputStream().readAllBytes());
+        }
+        Assertions.assertFalse(logger.hasEventLog("request_timeout"));
+    }
+
+    @Test
+    public void pipelinedDuringDispatch() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Dispatch first = dispatches.take();
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertNull(dispatches.poll(100, TimeUnit.MILLISECONDS)); // not parsed while first in flight
+            first.callback().accept(OK);
+            Dispatch second = dispatches.take();
+            Assertions.assertFalse(second.context().cancelled());
+            second.callback().accept(OK);
+            Assertions.assertArrayEquals(RESPONSE.repeat(2).getBytes(),
+                    socket.getInputStream().readNBytes(RESPONSE.length() * 2));
+            Assertions.assertFalse(first.context().cancelled());
+        }
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    void awaitEventLog(String event) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!logger.hasEventLog(event) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(logger.hasEventLog(event), event);
+    }
+
+}
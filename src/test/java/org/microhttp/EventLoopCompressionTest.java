@@ -0,0 +1,117 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+public class EventLoopCompressionTest {
+
+    static final byte[] BODY = "{\"message\":\"hello\"}".repeat(200).getBytes();
+
+    TestLogger logger;
+    ResponseCache cache;
+    AtomicInteger handled;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        cache = new ResponseCache(1_024 * 1_024, Duration.ofSeconds(10));
+        Options options = Options.builder()
+                .withPort(0)
+                .withCompression(true)
+                .withResponseCache(cache)
+                .build();
+        logger = new TestLogger();
+        handled = new AtomicInteger();
+        Handler handler = (req, callback) -> {
+            handled.incrementAndGet();
+            callback.accept(new Response(200, "OK", List.of(new Header("Content-Type", "application/json")), BODY));
+        };
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    record Reply(String head, byte[] body) {
+    }
+
+    static Reply readReply(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (head.indexOf("\r\n\r\n") < 0) {
+            int b = in.read();
+            Assertions.assertTrue(b >= 0, "unexpected end of stream");
+            head.append((char) b);
+        }
+        int start = head.indexOf("Content-Length: ") + "Content-Length: ".length();
+        int length = Integer.parseInt(head.substring(start, head.indexOf("\r\n", start)));
+        return new Reply(head.toString(), in.readNBytes(length));
+    }
+
+    Reply exchange(Socket socket, String acceptEncoding) throws IOException {
+        String request = "GET /data HTTP/1.1\r\n"
+                + (acceptEncoding == null ? "" : "Accept-Encoding: " + acceptEncoding + "\r\n")
+                + "\r\n";
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+        return readReply(socket.getInputStream());
+    }
+
+    static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void compressedVariantCached() throws IOException {
+        try (Socket socket = new Socket("localhost", eventLoop.getPort())) {
+            socket.setSoTimeout(5_000);
+            for (int i = 0; i < 3; i++) {
+                Reply reply = exchange(socket, "gzip, deflate");
+                Assertions.assertTrue(reply.head().contains("Content-Encoding: gzip\r\n"));
+                Assertions.assertTrue(reply.head().contains("Vary: Accept-Encoding\r\n"));
+                Assertions.assertTrue(reply.body().length < BODY.length);
+                Assertions.assertArrayEquals(BODY, gunzip(reply.body()));
+            }
+        }
+        Assertions.assertEquals(1, handled.get());
+        Assertions.assertEquals(1, logger.countEventLogs("compress_response"));
+        Assertions.assertEquals(2, cache.hits());
+    }
+
+    @Test
+    public void variantsCachedSeparately() throws IOException {
+        try (Socket socket = new Socket("localhost", eventLoop.getPort())) {
+            socket.setSoTimeout(5_000);
+            Reply identity = exchange(socket, null);
+            Assertions.assertFalse(identity.head().contains("Content-Encoding"));
+            Assertions.assertTrue(identity.head().contains("Vary: Accept-Encoding\r\n"));
+            Assertions.assertArrayEquals(BODY, identity.body());
+
+            Reply gzip = exchange(socket, "gzip");
+            Assertions.assertTrue(gzip.head().contains("Content-Encoding: gzip\r\n"));
+            Assertions.assertArrayEquals(BODY, gunzip(gzip.body()));
+
+            Assertions.assertArrayEquals(BODY, exchange(socket, "identity").body());
+            Assertions.assertArrayEquals(BODY, gunzip(exchange(socket, "gzip").body()));
+        }
+        Assertions.assertEquals(2, handled.get());
+        Assertions.assertEquals(2, cache.hits());
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+public class EventLoopConcurrencyLimiterTest {
+
+    static final Response OK = new Response(200, "OK", List.of(), new byte[0]);
+
+    static final String OK_RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    static final String SHED_RESPONSE = """
+            HTTP/1.1 503 Service Unavailable\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    TestLogger logger;
+    AimdLimiter limiter;
+    CompletableFuture<Consumer<Response>> pending;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        limiter = new AimdLimiter(1, 1, 1, 0.5, Duration.ofSeconds(1));
+        pending = new CompletableFuture<>();
+        Options options = Options.builder()
+                .withPort(0)
+                .withConcurrencyLimiter(limiter)
+                .build();
+        logger = new TestLogger();
+        Handler handler = (req, callback) -> {
+            if (req.uri().equals("/hold")) {
+                pending.complete(callback);
+            } else {
+                callback.accept(OK);
+            }
+        };
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void shedOverLimit() throws Exception {
+        try (Socket held = connect(); Socket shed = connect()) {
+            held.getOutputStream().write("GET /hold HTTP/1.1\r\n\r\n".getBytes());
+            Consumer<Response> callback = pending.get();
+            Assertions.assertEquals(1, limiter.inFlight());
+
+            shed.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(SHED_RESPONSE.getBytes(), shed.getInputStream().readNBytes(SHED_RESPONSE.length()));
+            Assertions.assertTrue(logger.hasEventLog("request_shed"));
+
+            callback.accept(OK);
+            Assertions.assertArrayEquals(OK_RESPONSE.getBytes(), held.getInputStream().readNBytes(OK_RESPONSE.length()));
+            Assertions.assertEquals(0, limiter.inFlight());
+
+            shed.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(OK_RESPONSE.getBytes(), shed.getInputStream().readNBytes(OK_RESPONSE.length()));
+        }
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+
+public class EventLoopConnectionLimitsTest {
+
+    static final String RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    void start(Duration idleTimeout, int maxConnections) throws IOException {
+        start(idleTimeout, maxConnections, 1);
+    }
+
+    void start(Duration idleTimeout, int maxConnections, int concurrency) throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withConcurrency(concurrency)
+                .withRequestTimeout(Duration.ofSeconds(10))
+                .withIdleTimeout(idleTimeout)
+                .withMaxConnections(maxConnections)
+                .build();
+        logger = new TestLogger();
+        Handler handler = (req, callback) -> callback.accept(new Response(200, "OK", List.of(), new byte[0]));
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void idleTimeout() throws IOException {
+        start(Duration.ofMillis(250), Integer.MAX_VALUE);
+        try (Socket socket = connect()) {
+            exchange(socket);
+            assertClosed(socket.getInputStream());
+            Assertions.assertTrue(logger.hasEventLog("idle_timeout"));
+            Assertions.assertFalse(logger.hasEventLog("request_timeout"));
+        }
+    }
+
+    @Test
+    public void evictOldestIdle() throws IOException {
+        start(Duration.ofSeconds(10), 2);
+        try (Socket first = connect(); Socket second = connect()) {
+            exchange(first);
+            exchange(second);
+            exchange(second); // second is now most recently used
+            try (Socket third = connect()) {
+                exchange(third);
+                assertClosed(first.getInputStream());
+                exchange(second);
+            }
+            Assertions.assertEquals(1, logger.countEventLogs("idle_evict"));
+        }
+    }
+
+    @Test
+    public void acceptBackpressure() throws IOException, InterruptedException {
+        start(Duration.ofSeconds(10), 1);
+        try (Socket busy = connect()) {
+            busy.getOutputStream().write("GET /file HTTP/1.1\r\n".getBytes()); // partial request, not idle
+            try (Socket waiting = connect()) {
+                waiting.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+                awaitEventLog("accept_pause");
+                Assertions.assertFalse(logger.hasEventLog("idle_evict"));
+                busy.getOutputStream().write("\r\n".getBytes()); // complete request, busy becomes idle
+                InputStream inputStream = waiting.getInputStream();
+                Assertions.assertArrayEquals(RESPONSE.getBytes(), inputStream.readNBytes(RESPONSE.length()));
+                Assertions.assertTrue(logger.hasEventLog("accept_resume"));
+                Assertions.assertTrue(logger.hasEventLog("idle_evict"));
+            }
+        }
+    }
+
+    @Test
+    public void evictOnLoopWithIdleConnection() throws IOException {
+        start(Duration.ofSeconds(10), 2, 2); // one connection per loop
+        try (Socket busy = connect(); Socket idle = connect()) { // one on each loop
+            busy.getOutputStream().write("GET /file HTTP/1.1\r\n".getBytes()); // partial request, not idle
+            exchange(idle);
+            try (Socket third = connect()) { // placed on loop of idle connection, not beside busy one
+                exchange(third);
+                assertClosed(idle.getInputStream());
+            }
+            busy.getOutputStream().write("\r\n".getBytes());
+            Assertions.assertArrayEquals(RESPONSE.getBytes(), busy.getInputStream().readNBytes(RESPONSE.length()));
+            Assertions.assertEquals(1, logger.countEventLogs("idle_evict"));
+            Assertions.assertFalse(logger.hasEventLog("accept_reject"));
+        }
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    static void exchange(Socket socket) throws IOException {
+        socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+        Assertions.assertArrayEquals(RESPONSE.getBytes(), socket.getInputStream().readNBytes(RESPONSE.length()));
+    }
+
+    static void assertClosed(InputStream inputStream) throws IOException {
+        try {
+            Assertions.assertEquals(-1, inputStream.read());
+        } catch (SocketException e) {
+            Assertions.assertTrue(e.getMessage().contains("reset"));
+        }
+    }
+
+    void awaitEventLog(String event) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!logger.hasEventLog(event) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(logger.hasEventLog(event), event);
+    }
+
+}
@@ -0,0 +1,120 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventLoopExecutorTest {
+
+    static final Response OK = new Response(200, "OK", List.of(), new byte[0]);
+
+    static final String RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    TestLogger logger;
+    CompletableFuture<Context> dispatched;
+    EventLoop eventLoop;
+
+    void start(ContextHandler handler) throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withResolution(Duration.ofMillis(10))
+                .build();
+        logger = new TestLogger();
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        dispatched = new CompletableFuture<>();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void scheduleOnEventLoop() throws IOException {
+        start((req, context, callback) -> {
+            Thread loop = Thread.currentThread();
+            Assertions.assertTrue(context.executor().inEventLoop());
+            context.executor().schedule(() -> {
+                Assertions.assertSame(loop, Thread.currentThread());
+                callback.accept(OK);
+            }, Duration.ofMillis(200));
+        });
+        long start = System.nanoTime();
+        exchange();
+        Assertions.assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+    }
+
+    @Test
+    public void executeFromOtherThread() throws Exception {
+        start((req, context, callback) -> dispatched.complete(context));
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Context context = dispatched.get();
+            Assertions.assertFalse(context.executor().inEventLoop());
+            CompletableFuture<Boolean> inLoop = new CompletableFuture<>();
+            context.executor().execute(() -> inLoop.complete(context.executor().inEventLoop()));
+            Assertions.assertTrue(inLoop.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void cancelFromOtherThread() throws Exception {
+        start((req, context, callback) -> dispatched.complete(context));
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            EventLoopExecutor executor = dispatched.get().executor();
+            CountDownLatch cancelled = new CountDownLatch(1);
+            CountDownLatch other = new CountDownLatch(1);
+            Cancellable task = executor.schedule(cancelled::countDown, Duration.ofMillis(100));
+            executor.schedule(other::countDown, Duration.ofMillis(200));
+            task.cancel();
+            Assertions.assertTrue(other.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, cancelled.getCount());
+        }
+    }
+
+    @Test
+    public void taskFailureIsContained() throws IOException {
+        start((req, context, callback) -> {
+            context.executor().execute(() -> {
+                throw new IllegalStateException();
+            });
+            context.executor().execute(() -> callback.accept(OK));
+        });
+        exchange();
+        Assertions.assertTrue(logger.hasEventLog("task_error"));
+    }
+
+    void exchange() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(RESPONSE.getBytes(), socket.getInputStream().readNBytes(RESPONSE.length()));
+        }
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+}
@@ -0,0 +1,330 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+
+public class EventLoopHttp2Test {
+
+    static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes();
+
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withHttp2(true)
+                .build();
+        logger = new TestLogger();
+        ContextHandler handler = (req, context, callback) -> {
+            byte[] body = switch (req.uri()) {
+                case "/large" -> new byte[100_000];
+                case "/echo" -> req.body();
+                default -> (req.method() + " " + req.uri() + " " + req.version() + " " + req.header("Host")).getBytes();
+            };
+            Response response = new Response(200, "OK", List.of(new Header("Content-Type", "text/plain")), body);
+            if (req.uri().equals("/slow")) {
+                context.executor().schedule(() -> callback.accept(response), Duration.ofMillis(200));
+            } else {
+                callback.accept(response);
+            }
+        };
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    /**
+     * Minimal HTTP/2 client speaking raw frames over a blocking socket.
+     */
+    class Client implements AutoCloseable {
+        final Socket socket;
+        final OutputStream out;
+        final DataInputStream in;
+        final Hpack.Decoder decoder = new Hpack.Decoder();
+
+        Client() throws IOException {
+            socket = new Socket("localhost", eventLoop.getPort());
+            socket.setSoTimeout(5_000);
+            out = socket.getOutputStream();
+            in = new DataInputStream(socket.getInputStream());
+            out.write(PREFACE);
+            send(Http2Frame.SETTINGS, 0, 0, new byte[0]);
+        }
+
+        void send(int type, int flags, int streamId, byte[] payload) throws IOException {
+            out.write(Http2Frame.encode(type, flags, streamId, payload));
+        }
+
+        void get(int streamId, String path) throws IOException {
+            send(Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, streamId, Hpack.encode(List.of(
+                    new Header(":method", "GET"),
+                    new Header(":scheme", "http"),
+                    new Header(":path", path),
+                    new Header(":authority", "localhost"))));
+        }
+
+        Http2Frame read() throws IOException {
+            byte[] header = new byte[Http2Frame.HEADER_LENGTH];
+            in.readFully(header);
+            int length = ((header[0] & 0xFF) << 16) | ((header[1] & 0xFF) << 8) | (header[2] & 0xFF);
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return new Http2Frame(header[3], header[4], Http2Frame.getInt(header, 5), payload);
+        }
+
+        /**
+         * Next HEADERS, DATA, PING, GOAWAY, or RST_STREAM frame, skipping connection management frames.
+         */
+        Http2Frame next() throws IOException {
+            while (true) {
+                Http2Frame frame = read();
+                if (frame.type() != Http2Frame.SETTINGS && frame.type() != Http2Frame.WINDOW_UPDATE) {
+                    return frame;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    static byte[] windowUpdate(int increment) {
+        byte[] payload = new byte[4];
+        Http2Frame.putInt(payload, 0, increment);
+        return payload;
+    }
+
+    @Test
+    public void serverSettings() throws IOException {
+        try (Client client = new Client()) {
+            Http2Frame settings = client.read();
+            Assertions.assertEquals(Http2Frame.SETTINGS, settings.type());
+            Assertions.assertFalse(settings.hasFlag(Http2Frame.FLAG_ACK));
+            Assertions.assertEquals(Http2Frame.SETTINGS_INITIAL_WINDOW_SIZE, settings.payload()[13]);
+            Assertions.assertEquals(1_024 * 1_024, Http2Frame.getInt(settings.payload(), 14));
+            Http2Frame windowUpdate = client.read(); // connection window enlarged to match stream windows
+            Assertions.assertEquals(Http2Frame.WINDOW_UPDATE, windowUpdate.type());
+            Assertions.assertEquals(0, windowUpdate.streamId());
+            Assertions.assertEquals(1_024 * 1_024 - 65_535, Http2Frame.getInt(windowUpdate.payload(), 0));
+            Http2Frame ack = client.read();
+            Assertions.assertEquals(Http2Frame.SETTINGS, ack.type());
+            Assertions.assertTrue(ack.hasFlag(Http2Frame.FLAG_ACK));
+        }
+    }
+
+    @Test
+    public void getRequest() throws IOException {
+        try (Client client = new Client()) {
+            client.get(1, "/hello");
+            Http2Frame headers = client.next();
+            Assertions.assertEquals(Http2Frame.HEADERS, headers.type());
+            Assertions.assertEquals(1, headers.streamId());
+            Assertions.assertTrue(headers.hasFlag(Http2Frame.FLAG_END_HEADERS));
+            Assertions.assertEquals(List.of(
+                    new Header(":status", "200"),
+                    new Header("content-type", "text/plain"),
+                    new Header("content-length", "27")), client.decoder.decode(headers.payload(), Integer.MAX_VALUE));
+            Http2Frame data = client.next();
+            Assertions.assertEquals(Http2Frame.DATA, data.type());
+            Assertions.assertTrue(data.hasFlag(Http2Frame.FLAG_END_STREAM));
+            Assertions.assertEquals("GET /hello HTTP/2 localhost", new String(data.payload()));
+        }
+    }
+
+    @Test
+    public void requestBody() throws IOException {
+        try (Client client = new Client()) {
+            client.send(Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS, 1, Hpack.encode(List.of(
+                    new Header(":method", "POST"),
+                    new Header(":scheme", "http"),
+                    new Header(":path", "/echo"))));
+            client.send(Http2Frame.DATA, 0, 1, "hello ".getBytes());
+            byte[] padded = new byte[]{2, 'w', 'o', 'r', 'l', 'd', 0, 0};
+            client.send(Http2Frame.DATA, Http2Frame.FLAG_PADDED | Http2Frame.FLAG_END_STREAM, 1, padded);
+            Assertions.assertEquals(Http2Frame.HEADERS, client.next().type());
+            Assertions.assertEquals("hello world", new String(client.next().payload()));
+        }
+    }
+
+    @Test
+    public void requestBodyWindowReplenishedOnDispatch() throws IOException {
+        try (Client client = new Client()) {
+            client.send(Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS, 1, Hpack.encode(List.of(
+                    new Header(":method", "POST"),
+                    new Header(":scheme", "http"),
+                    new Header(":path", "/echo"))));
+            client.send(Http2Frame.DATA, 0, 1, new byte[1_000]);
+            client.send(Http2Frame.PING, 0, 0, new byte[8]);
+            Assertions.assertEquals(Http2Frame.SETTINGS, client.read().type());
+            Assertions.assertEquals(Http2Frame.WINDOW_UPDATE, client.read().type()); // initial enlargement
+            Assertions.assertEquals(Http2Frame.SETTINGS, client.read().type());
+            Assertions.assertEquals(Http2Frame.PING, client.read().type()); // no window update for buffered data
+            client.send(Http2Frame.DATA, Http2Frame.FLAG_END_STREAM, 1, new byte[10]);
+            Http2Frame windowUpdate = client.read();
+            Assertions.assertEquals(Http2Frame.WINDOW_UPDATE, windowUpdate.type());
+            Assertions.assertEquals(0, windowUpdate.streamId());
+            Assertions.assertEquals(1_010, Http2Frame.getInt(windowUpdate.payload(), 0));
+            Assertions.assertEquals(Http2Frame.HEADERS, client.next().type());
+            Assertions.assertEquals(1_010, client.next().payload().length);
+        }
+    }
+
+    @Test
+    public void multiplexedStreams() throws IOException {
+        try (Client client = new Client()) {
+            client.get(1, "/slow");
+            client.get(3, "/fast");
+            Http2Frame first = client.next();
+            Assertions.assertEquals(3, first.streamId()); // not blocked behind slow stream
+            Assertions.assertEquals("GET /fast HTTP/2 localhost", new String(client.next().payload()));
+            Http2Frame second = client.next();
+            Assertions.assertEquals(1, second.streamId());
+            Assertions.assertEquals("GET /slow HTTP/2 localhost", new String(client.next().payload()));
+        }
+    }
+
+    @Test
+    public void flowControl() throws IOException {
+        try (Client client = new Client()) {
+            client.get(1, "/large");
+            Assertions.assertEquals(Http2Frame.HEADERS, client.next().type());
+            int received = 0;
+            while (received < 65_535) { // default initial window
+                Http2Frame data = client.next();
+                Assertions.assertEquals(Http2Frame.DATA, data.type());
+                Assertions.assertFalse(data.hasFlag(Http2Frame.FLAG_END_STREAM));
+                received += data.payload().length;
+            }
+            Assertions.assertEquals(65_535, received);
+            client.get(3, "/hello"); // connection window exhausted, stream waits
+            Assertions.assertEquals(Http2Frame.HEADERS, client.next().type());
+            client.send(Http2Frame.WINDOW_UPDATE, 0, 0, windowUpdate(100_000));
+            client.send(Http2Frame.WINDOW_UPDATE, 0, 1, windowUpdate(100_000));
+            boolean hello = false;
+            boolean large = false;
+            while (!hello || !large) {
+                Http2Frame data = client.next();
+                Assertions.assertEquals(Http2Frame.DATA, data.type());
+                if (data.streamId() == 1) {
+                    received += data.payload().length;
+                    large = data.hasFlag(Http2Frame.FLAG_END_STREAM);
+                } else {
+                    hello = true;
+                }
+            }
+            Assertions.assertEquals(100_000, received);
+        }
+    }
+
+    @Test
+    public void ping() throws IOException {
+        try (Client client = new Client()) {
+            byte[] payload = {1, 2, 3, 4, 5, 6, 7, 8};
+            client.send(Http2Frame.PING, 0, 0, payload);
+            Http2Frame pong = client.next();
+            Assertions.assertEquals(Http2Frame.PING, pong.type());
+            Assertions.assertTrue(pong.hasFlag(Http2Frame.FLAG_ACK));
+            Assertions.assertArrayEquals(payload, pong.payload());
+        }
+    }
+
+    @Test
+    public void streamReset() throws IOException {
+        try (Client client = new Client()) {
+            client.get(1, "/slow");
+            client.send(Http2Frame.RST_STREAM, 0, 1, windowUpdate(Http2Exception.CANCEL));
+            client.get(3, "/fast");
+            Http2Frame headers = client.next();
+            Assertions.assertEquals(3, headers.streamId()); // nothing further on reset stream
+            Assertions.assertEquals(3, client.next().streamId());
+        }
+        Assertions.assertTrue(logger.hasEventLog("stream_reset"));
+    }
+
+    @Test
+    public void protocolError() throws IOException {
+        try (Client client = new Client()) {
+            client.send(Http2Frame.DATA, 0, 0, new byte[1]); // data on connection stream
+            Http2Frame goAway = client.next();
+            Assertions.assertEquals(Http2Frame.GOAWAY, goAway.type());
+            Assertions.assertEquals(Http2Exception.PROTOCOL_ERROR, Http2Frame.getInt(goAway.payload(), 4));
+            Assertions.assertEquals(-1, client.in.read());
+        }
+    }
+
+    @Test
+    public void clientGoAway() throws IOException {
+        try (Client client = new Client()) {
+            client.get(1, "/slow");
+            client.send(Http2Frame.GOAWAY, 0, 0, new byte[8]);
+            Assertions.assertEquals(1, client.next().streamId()); // in-flight stream completes
+            Assertions.assertEquals(1, client.next().streamId());
+            Assertions.assertEquals(-1, client.in.read());
+        }
+    }
+
+    @Test
+    public void stopSendsGoAway() throws IOException, InterruptedException {
+        try (Client client = new Client()) {
+            client.get(1, "/hello");
+            Assertions.assertEquals(Http2Frame.HEADERS, client.next().type());
+            Assertions.assertEquals(Http2Frame.DATA, client.next().type());
+            eventLoop.stop();
+            eventLoop.join();
+            Http2Frame goAway = client.next();
+            Assertions.assertEquals(Http2Frame.GOAWAY, goAway.type());
+            Assertions.assertEquals(1, Http2Frame.getInt(goAway.payload(), 0));
+            Assertions.assertEquals(Http2Exception.NO_ERROR, Http2Frame.getInt(goAway.payload(), 4));
+            Assertions.assertEquals(-1, client.in.read());
+        }
+    }
+
+    @Test
+    public void idleTimeoutSendsGoAway() throws IOException, InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+        Options options = Options.builder()
+                .withPort(0)
+                .withHttp2(true)
+                .withIdleTimeout(Duration.ofMillis(200))
+                .build();
+        eventLoop = new EventLoop(options, logger, (req, callback) ->
+                callback.accept(new Response(200, "OK", List.of(), new byte[0])));
+        eventLoop.start();
+        try (Client client = new Client()) {
+            Http2Frame goAway = client.next();
+            Assertions.assertEquals(Http2Frame.GOAWAY, goAway.type());
+            Assertions.assertEquals(Http2Exception.NO_ERROR, Http2Frame.getInt(goAway.payload(), 4));
+            Assertions.assertEquals(-1, client.in.read());
+        }
+        Assertions.assertTrue(logger.hasEventLog("idle_timeout"));
+    }
+
+    @Test
+    public void http1StillServed() throws IOException {
+        try (Socket socket = new Socket("localhost", eventLoop.getPort())) {
+            socket.getOutputStream().write("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes());
+            String expected = "HTTP/1.1 200 OK\r\nContent-Length: 29\r\nContent-Type: text/plain\r\n\r\nGET /hello HTTP/1.1 localhost";
+            Assertions.assertEquals(expected, new String(socket.getInputStream().readNBytes(expected.length())));
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EventLoopIdleMemoryTest {
+
+    static final int NUM_CONNECTIONS = 500;
+    static final int BODY_SIZE = 32 * 1_024;
+    static final long MAX_BYTES_PER_CONNECTION = 8 * 1_024;
+
+    static final String RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    EventLoop eventLoop;
+    List<Socket> sockets;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withRequestTimeout(Duration.ofSeconds(30))
+                .withMaxRequestSize(BODY_SIZE * 2)
+                .withConcurrency(1)
+                .build();
+        Handler handler = (req, callback) -> callback.accept(new Response(200, "OK", List.of(), new byte[0]));
+        eventLoop = new EventLoop(options, NoopLogger.instance(), handler);
+        eventLoop.start();
+        sockets = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException, InterruptedException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void idleConnectionsRetainNoRequestBuffers() throws IOException, InterruptedException {
+        byte[] body = new byte[BODY_SIZE];
+        Arrays.fill(body, (byte) 'x');
+        byte[] head = """
+                POST /upload HTTP/1.1\r
+                Content-Length: %d\r
+                \r
+                """.formatted(BODY_SIZE).getBytes();
+
+        long before = usedHeap();
+        for (int i = 0; i < NUM_CONNECTIONS; i++) {
+            Socket socket = new Socket("localhost", eventLoop.getPort());
+            socket.setSoTimeout(5_000);
+            sockets.add(socket);
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(head);
+            outputStream.write(body);
+            InputStream inputStream = socket.getInputStream();
+            Assertions.assertArrayEquals(RESPONSE.getBytes(), inputStream.readNBytes(RESPONSE.length()));
+        }
+        long after = usedHeap();
+
+        // every connection is now idle with a keep-alive request timeout pending
+        long perConnection = (after - before) / NUM_CONNECTIONS;
+        Assertions.assertTrue(
+                perConnection < MAX_BYTES_PER_CONNECTION,
+                "heap per idle connection %d exceeds %d".formatted(perConnection, MAX_BYTES_PER_CONNECTION));
+    }
+
+    @Test
+    public void idleConnectionsReturnBuffersToPool() throws IOException, InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            Socket socket = new Socket("localhost", eventLoop.getPort());
+            socket.setSoTimeout(5_000);
+            sockets.add(socket);
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(RESPONSE.getBytes(), socket.getInputStream().readNBytes(RESPONSE.length()));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (eventLoop.bufferPoolStats().borrowedBytes() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        BufferPoolStats stats = eventLoop.bufferPoolStats();
+        Assertions.assertEquals(0, stats.borrowedBytes());
+        Assertions.assertEquals(stats.borrows(), stats.releases());
+        Assertions.assertTrue(stats.allocations() < stats.borrows());
+    }
+
+    static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
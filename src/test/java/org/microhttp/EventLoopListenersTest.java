@@ -0,0 +1,87 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.List;
+
+public class EventLoopListenersTest {
+
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    static Handler respond(String body) {
+        return (req, callback) -> callback.accept(new Response(200, "OK", List.of(), body.getBytes()));
+    }
+
+    static String response(String body) {
+        return "HTTP/1.1 200 OK\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+    }
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        Options options = Options.builder()
+                .withConcurrency(2)
+                .withResponseCache(new ResponseCache(1_024, Duration.ofSeconds(10)))
+                .build();
+        logger = new TestLogger();
+        eventLoop = new EventLoop(options, logger, List.of(
+                new Listener("localhost", 0, respond("public")),
+                new Listener("localhost", 0, respond("admin")),
+                new Listener("localhost", 0, respond("metrics"))));
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    static String exchange(SocketAddress address, int length) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(address);
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            return new String(socket.getInputStream().readNBytes(length));
+        }
+    }
+
+    @Test
+    public void eachListenerHasOwnHandler() throws IOException {
+        List<SocketAddress> addresses = eventLoop.getAddresses();
+        Assertions.assertEquals(3, addresses.size());
+        Assertions.assertEquals(((InetSocketAddress) addresses.get(0)).getPort(), eventLoop.getPort());
+        List<String> bodies = List.of("public", "admin", "metrics");
+        for (int round = 0; round < 2; round++) { // second round answered from response cache
+            for (int i = 0; i < addresses.size(); i++) {
+                String expected = response(bodies.get(i));
+                Assertions.assertEquals(expected, exchange(addresses.get(i), expected.length()));
+            }
+        }
+    }
+
+    @Test
+    public void bindFailureReleasesListeners() throws IOException {
+        try (ServerSocket taken = new ServerSocket(0)) {
+            Assertions.assertThrows(IOException.class, () -> new EventLoop(Options.builder().build(), logger, List.of(
+                    new Listener(0, respond("a")),
+                    new Listener(taken.getLocalPort(), respond("b")))));
+        }
+    }
+
+    @Test
+    public void listenersRequired() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new EventLoop(Options.builder().build(), logger, List.of()));
+    }
+
+}
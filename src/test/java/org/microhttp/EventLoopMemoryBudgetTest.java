@@ -0,0 +1,159 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class EventLoopMemoryBudgetTest {
+
+    static final String RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    static final int LARGE_SIZE = 8 * 1_024 * 1_024;
+
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withConcurrency(1)
+                .withRequestTimeout(Duration.ofSeconds(5))
+                .withMaxRequestSize(64 * 1_024)
+                .withMaxBufferedBytes(20_000)
+                .build();
+        logger = new TestLogger();
+        Handler handler = (req, callback) -> callback.accept(new Response(200, "OK", List.of(),
+                req.uri().equals("/large") ? new byte[LARGE_SIZE] : new byte[0]));
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void largestConsumerClosedAndPausedReadsResumed() throws IOException, InterruptedException {
+        try (Socket large = new Socket("localhost", eventLoop.getPort());
+             Socket small = new Socket("localhost", eventLoop.getPort())) {
+            large.setSoTimeout(5_000);
+            small.setSoTimeout(5_000);
+
+            large.getOutputStream().write(partialRequest(32 * 1_024, 10 * 1_024));
+            awaitLog(ents -> ents.contains(new LogEntry("event", "read_bytes")) && ents.stream()
+                    .anyMatch(e -> e.key().equals("request_bytes") && Integer.parseInt(e.value()) >= 10 * 1_024));
+
+            OutputStream smallOut = small.getOutputStream();
+            smallOut.write(partialRequest(4 * 1_024, 3 * 1_024));
+            awaitEventLog("read_pause");
+            awaitEventLog("exceed_budget_close");
+            assertClosed(large.getInputStream());
+            awaitEventLog("read_resume");
+
+            smallOut.write(body(1_024));
+            InputStream smallIn = small.getInputStream();
+            Assertions.assertArrayEquals(RESPONSE.getBytes(), smallIn.readNBytes(RESPONSE.length()));
+        }
+    }
+
+    @Test
+    public void writerNotClosedAndDispatchDeferred() throws IOException, InterruptedException {
+        try (Socket writer = new Socket("localhost", eventLoop.getPort());
+             Socket waiter = new Socket("localhost", eventLoop.getPort())) {
+            writer.setSoTimeout(5_000);
+            waiter.setSoTimeout(5_000);
+            writer.getOutputStream().write("GET /large HTTP/1.1\r\n\r\n".getBytes());
+            awaitEventLog("write"); // client does not read, response exceeds budget while written
+
+            waiter.getOutputStream().write("GET /small HTTP/1.1\r\n\r\n".getBytes());
+            awaitEventLog("dispatch_pause");
+
+            InputStream in = writer.getInputStream();
+            String head = "HTTP/1.1 200 OK\r\nContent-Length: " + LARGE_SIZE + "\r\n\r\n";
+            Assertions.assertArrayEquals(head.getBytes(), in.readNBytes(head.length()));
+            Assertions.assertEquals(LARGE_SIZE, in.readNBytes(LARGE_SIZE).length);
+
+            Assertions.assertArrayEquals(RESPONSE.getBytes(), waiter.getInputStream().readNBytes(RESPONSE.length()));
+            Assertions.assertTrue(logger.hasEventLog("dispatch_resume"));
+        }
+        Assertions.assertFalse(logger.hasEventLog("exceed_budget_close"));
+    }
+
+    @Test
+    public void readerClosedWhileWriterWrites() throws IOException, InterruptedException {
+        try (Socket writer = new Socket("localhost", eventLoop.getPort());
+             Socket reader = new Socket("localhost", eventLoop.getPort())) {
+            writer.setSoTimeout(5_000);
+            reader.setSoTimeout(5_000);
+            writer.getOutputStream().write("GET /large HTTP/1.1\r\n\r\n".getBytes());
+            awaitEventLog("write");
+
+            reader.getOutputStream().write(partialRequest(32 * 1_024, 10 * 1_024));
+            awaitEventLog("exceed_budget_close");
+            assertClosed(reader.getInputStream());
+
+            InputStream in = writer.getInputStream();
+            String head = "HTTP/1.1 200 OK\r\nContent-Length: " + LARGE_SIZE + "\r\n\r\n";
+            Assertions.assertArrayEquals(head.getBytes(), in.readNBytes(head.length()));
+            Assertions.assertEquals(LARGE_SIZE, in.readNBytes(LARGE_SIZE).length);
+        }
+        Assertions.assertEquals(1, logger.countEventLogs("exceed_budget_close"));
+    }
+
+    static byte[] partialRequest(int contentLength, int bodyBytes) {
+        String head = """
+                POST /upload HTTP/1.1\r
+                Content-Length: %d\r
+                \r
+                """.formatted(contentLength);
+        byte[] headBytes = head.getBytes();
+        byte[] result = Arrays.copyOf(headBytes, headBytes.length + bodyBytes);
+        Arrays.fill(result, headBytes.length, result.length, (byte) 'x');
+        return result;
+    }
+
+    static byte[] body(int size) {
+        byte[] body = new byte[size];
+        Arrays.fill(body, (byte) 'x');
+        return body;
+    }
+
+    static void assertClosed(InputStream inputStream) throws IOException {
+        try {
+            Assertions.assertEquals(-1, inputStream.read());
+        } catch (SocketException e) {
+            Assertions.assertTrue(e.getMessage().contains("reset"));
+        }
+    }
+
+    void awaitEventLog(String event) throws InterruptedException {
+        awaitLog(ents -> ents.contains(new LogEntry("event", event)));
+    }
+
+    void awaitLog(Predicate<List<LogEntry>> predicate) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!logger.hasLog(predicate) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(logger.hasLog(predicate));
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+
+public class EventLoopRequestLimitsTest {
+
+    TestLogger logger;
+    EventLoop eventLoop;
+    Socket socket;
+    InputStream inputStream;
+    OutputStream outputStream;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withRequestTimeout(Duration.ofSeconds(10))
+                .withHeaderTimeout(Duration.ofMillis(500))
+                .withMaxHeaderSize(1_024)
+                .withMinRequestRate(1_024)
+                .build();
+        logger = new TestLogger();
+        Handler handler = (req, callback) -> callback.accept(new Response(200, "OK", List.of(), new byte[0]));
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+        socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        inputStream = socket.getInputStream();
+        outputStream = socket.getOutputStream();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException, InterruptedException {
+        socket.close();
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void headerTooLarge() throws IOException {
+        String request = """
+                GET /file HTTP/1.1\r
+                Cookie: %s\r
+                \r
+                """.formatted("x".repeat(2_048));
+        outputStream.write(request.getBytes());
+        assertClosed();
+        Assertions.assertTrue(logger.hasEventLog("exceed_header_max_close"));
+    }
+
+    @Test
+    public void headerTimeout() throws IOException {
+        outputStream.write("GET /file HTTP/1.1\r\n".getBytes());
+        assertClosed();
+        Assertions.assertTrue(logger.hasEventLog("header_timeout"));
+        Assertions.assertFalse(logger.hasEventLog("request_timeout"));
+    }
+
+    @Test
+    public void bodyBelowMinRate() throws IOException, InterruptedException {
+        outputStream.write("POST /file HTTP/1.1\r\nContent-Length: 100\r\n\r\n".getBytes());
+        try {
+            for (int i = 0; i < 100; i++) {
+                outputStream.write('x');
+                Thread.sleep(20); // 50 bytes per second
+            }
+        } catch (SocketException e) {
+            // connection closed by server
+        }
+        assertClosed();
+        Assertions.assertTrue(logger.hasEventLog("request_rate_close"));
+    }
+
+    void assertClosed() throws IOException {
+        try {
+            Assertions.assertEquals(-1, inputStream.read());
+        } catch (SocketException e) {
+            Assertions.assertTrue(e.getMessage().contains("reset"));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventLoopResponseCacheTest {
+
+    static final String HTTP11_RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 5\r
+            \r
+            hello""";
+
+    static final String HTTP10_RESPONSE = """
+            HTTP/1.0 200 OK\r
+            Content-Length: 5\r
+            \r
+            hello""";
+
+    TestLogger logger;
+    ResponseCache cache;
+    AtomicInteger handled;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        cache = new ResponseCache(1_024, Duration.ofSeconds(10));
+        Options options = Options.builder()
+                .withPort(0)
+                .withResponseCache(cache)
+                .build();
+        logger = new TestLogger();
+        handled = new AtomicInteger();
+        Handler handler = (req, callback) -> {
+            handled.incrementAndGet();
+            callback.accept(new Response(200, "OK", List.of(), "hello".getBytes()));
+        };
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void hitsSkipHandler() throws IOException {
+        try (Socket socket = connect()) {
+            for (int i = 0; i < 3; i++) {
+                socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+                Assertions.assertArrayEquals(HTTP11_RESPONSE.getBytes(),
+                        socket.getInputStream().readNBytes(HTTP11_RESPONSE.length()));
+            }
+        }
+        Assertions.assertEquals(1, handled.get());
+        Assertions.assertEquals(2, cache.hits());
+        Assertions.assertEquals(1, cache.misses());
+        Assertions.assertEquals(2, logger.countEventLogs("cache_hit"));
+    }
+
+    @Test
+    public void pipelinedHits() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.repeat(4).getBytes());
+            Assertions.assertArrayEquals(HTTP11_RESPONSE.repeat(4).getBytes(),
+                    socket.getInputStream().readNBytes(HTTP11_RESPONSE.length() * 4));
+        }
+        Assertions.assertEquals(1, handled.get());
+        Assertions.assertEquals(3, cache.hits());
+    }
+
+    @Test
+    public void serializedPerVersion() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(HTTP11_RESPONSE.getBytes(),
+                    socket.getInputStream().readNBytes(HTTP11_RESPONSE.length()));
+        }
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /file HTTP/1.0\r\n\r\n".getBytes());
+            Assertions.assertArrayEquals(HTTP10_RESPONSE.getBytes(), socket.getInputStream().readAllBytes());
+        }
+        Assertions.assertEquals(2, handled.get());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+}
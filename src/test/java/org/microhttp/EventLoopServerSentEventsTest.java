@@ -0,0 +1,190 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class EventLoopServerSentEventsTest {
+
+    static final String HEAD = """
+            HTTP/1.1 200 OK\r
+            Transfer-Encoding: chunked\r
+            Content-Type: text/event-stream\r
+            Cache-Control: no-cache\r
+            \r
+            """;
+
+    TestLogger logger;
+    EventBroadcaster broadcaster;
+    BlockingQueue<EventStream> streams;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withConcurrency(2)
+                .build();
+        logger = new TestLogger();
+        broadcaster = new EventBroadcaster();
+        streams = new LinkedBlockingQueue<>();
+        ContextHandler handler = (req, context, callback) -> {
+            EventStream stream = new EventStream(context, 2);
+            broadcaster.add(stream);
+            streams.add(stream);
+            callback.accept(stream.response());
+        };
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    static String chunk(String data) {
+        return Integer.toHexString(data.length()) + "\r\n" + data + "\r\n";
+    }
+
+    @Test
+    public void serialize() {
+        Assertions.assertEquals("data: hello\n\n", new String(ServerSentEvent.of("hello").serialize()));
+        Assertions.assertEquals("id: 7\nevent: update\ndata: a\ndata: b\n\n",
+                new String(new ServerSentEvent("7", "update", "a\nb").serialize()));
+    }
+
+    @Test
+    public void sendAndClose() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            EventStream stream = streams.take();
+            assertReceived(socket.getInputStream(), HEAD);
+            stream.send(ServerSentEvent.of("one"));
+            assertReceived(socket.getInputStream(), chunk("data: one\n\n"));
+            stream.send(new ServerSentEvent("2", "update", "two"));
+            stream.close();
+            assertReceived(socket.getInputStream(), chunk("id: 2\nevent: update\ndata: two\n\n") + "0\r\n\r\n");
+            Assertions.assertTrue(stream.closed());
+        }
+    }
+
+    @Test
+    public void broadcast() throws Exception {
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) { // spread over both connection event loops
+                Socket socket = connect();
+                sockets.add(socket);
+                socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+                streams.take();
+                assertReceived(socket.getInputStream(), HEAD);
+            }
+            Assertions.assertEquals(4, broadcaster.size());
+            broadcaster.broadcast(ServerSentEvent.of("all"));
+            for (Socket socket : sockets) {
+                assertReceived(socket.getInputStream(), chunk("data: all\n\n"));
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void removeOnClose() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            EventStream stream = streams.take();
+            assertReceived(socket.getInputStream(), HEAD);
+            stream.close();
+            awaitSize(0);
+        }
+    }
+
+    @Test
+    public void overflowClosesConnection() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            EventStream stream = streams.take();
+            String data = "x".repeat(64 * 1_024);
+            for (int i = 0; i < 1_000 && !stream.closed(); i++) { // client does not read
+                stream.send(ServerSentEvent.of(data));
+                Thread.sleep(1);
+            }
+            Assertions.assertTrue(stream.closed());
+            awaitSize(0);
+        }
+    }
+
+    @Test
+    public void removeOnPeerClose() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            streams.take();
+            assertReceived(socket.getInputStream(), HEAD);
+            Assertions.assertEquals(1, broadcaster.size());
+        }
+        awaitSize(0);
+    }
+
+    @Test
+    public void heartbeatOutlastsIdleTimeout() throws Exception {
+        Options options = Options.builder()
+                .withPort(0)
+                .withIdleTimeout(Duration.ofMillis(500))
+                .build();
+        ContextHandler handler = (req, context, callback) -> {
+            EventStream stream = new EventStream(context, 2, Duration.ofMillis(100));
+            streams.add(stream);
+            callback.accept(stream.response());
+        };
+        EventLoop heartbeatLoop = new EventLoop(options, logger, handler);
+        heartbeatLoop.start();
+        try (Socket socket = new Socket("localhost", heartbeatLoop.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            EventStream stream = streams.take();
+            assertReceived(socket.getInputStream(), HEAD);
+            for (int i = 0; i < 10; i++) { // spans twice the idle timeout
+                assertReceived(socket.getInputStream(), chunk(":\n\n"));
+            }
+            Assertions.assertFalse(stream.closed());
+            Assertions.assertFalse(logger.hasEventLog("stream_timeout"));
+        } finally {
+            heartbeatLoop.stop();
+            heartbeatLoop.join();
+        }
+    }
+
+    void awaitSize(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (broadcaster.size() != size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(size, broadcaster.size());
+    }
+
+    static void assertReceived(InputStream in, String expected) throws IOException {
+        Assertions.assertEquals(expected, new String(in.readNBytes(expected.length())));
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+}
@@ -0,0 +1,261 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+public class EventLoopStreamingTest {
+
+    /**
+     * Publisher of a fixed number of buffers that honors demand, emitting on the requesting thread.
+     */
+    static class TestPublisher implements Flow.Publisher<ByteBuffer> {
+        final int count;
+        final IntFunction<ByteBuffer> items;
+        final boolean fail;
+        final AtomicInteger emitted = new AtomicInteger();
+
+        TestPublisher(int count, IntFunction<ByteBuffer> items, boolean fail) {
+            this.count = count;
+            this.items = items;
+            this.fail = fail;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                int index;
+
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n; i++) {
+                        int next = index++;
+                        if (next < count) {
+                            emitted.incrementAndGet();
+                            subscriber.onNext(items.apply(next));
+                        }
+                        if (next == count - 1) {
+                            if (fail) {
+                                subscriber.onError(new IOException("failure"));
+                            } else {
+                                subscriber.onComplete();
+                            }
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+    }
+
+    /**
+     * Publisher that emits the provided number of buffers upon the first request, regardless of demand,
+     * and never completes.
+     */
+    static class UnrulyPublisher implements Flow.Publisher<ByteBuffer> {
+        final int count;
+        final int size;
+        final CountDownLatch cancelled = new CountDownLatch(1);
+
+        UnrulyPublisher(int count, int size) {
+            this.count = count;
+            this.size = size;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                boolean requested;
+
+                @Override
+                public void request(long n) {
+                    if (!requested) {
+                        requested = true;
+                        for (int i = 0; i < count; i++) {
+                            subscriber.onNext(ByteBuffer.allocate(size));
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.countDown();
+                }
+            });
+        }
+    }
+
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    void start(Flow.Publisher<ByteBuffer> publisher) throws IOException {
+        start(publisher, List.of(), Duration.ofSeconds(60));
+    }
+
+    void start(Flow.Publisher<ByteBuffer> publisher, List<Header> headers, Duration idleTimeout) throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withIdleTimeout(idleTimeout)
+                .build();
+        logger = new TestLogger();
+        Handler handler = (req, callback) -> callback.accept(Response.streaming(200, "OK", headers, publisher));
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    static TestPublisher words(boolean fail) {
+        List<String> words = List.of("hello", " ", "world");
+        return new TestPublisher(words.size(), i -> ByteBuffer.wrap(words.get(i).getBytes()), fail);
+    }
+
+    @Test
+    public void chunkedEncoding() throws IOException {
+        start(words(false));
+        String expected = """
+                HTTP/1.1 200 OK\r
+                Transfer-Encoding: chunked\r
+                \r
+                5\r
+                hello\r
+                1\r
+                 \r
+                5\r
+                world\r
+                0\r
+                \r
+                """;
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(expected.getBytes(), socket.getInputStream().readNBytes(expected.length()));
+        }
+        Assertions.assertTrue(logger.hasEventLog("stream_complete"));
+    }
+
+    @Test
+    public void persistentAfterStream() throws IOException {
+        start(new TestPublisher(1, i -> ByteBuffer.wrap("a".getBytes()), false));
+        String expected = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n1\r\na\r\n0\r\n\r\n";
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(expected.getBytes(), socket.getInputStream().readNBytes(expected.length()));
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(expected.getBytes(), socket.getInputStream().readNBytes(expected.length()));
+        }
+    }
+
+    @Test
+    public void http10CloseDelimited() throws IOException {
+        start(words(false));
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /file HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n".getBytes());
+            String expected = "HTTP/1.0 200 OK\r\n\r\nhello world";
+            Assertions.assertArrayEquals(expected.getBytes(), socket.getInputStream().readAllBytes());
+        }
+    }
+
+    @Test
+    public void publisherFailure() throws IOException {
+        start(words(true));
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            String received = new String(socket.getInputStream().readAllBytes());
+            Assertions.assertFalse(received.endsWith("0\r\n\r\n"));
+        }
+        Assertions.assertTrue(logger.hasEventLog("stream_error"));
+    }
+
+    @Test
+    public void writeBackpressure() throws IOException, InterruptedException {
+        int chunkSize = 64 * 1_024;
+        int count = 1_000;
+        TestPublisher publisher = new TestPublisher(count, i -> ByteBuffer.allocate(chunkSize), false);
+        start(publisher);
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Thread.sleep(500); // client does not read, socket buffers fill up
+            Assertions.assertTrue(publisher.emitted.get() < count / 2, Integer.toString(publisher.emitted.get()));
+            String head = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n";
+            int framing = Integer.toHexString(chunkSize).length() + 4;
+            int length = head.length() + count * (chunkSize + framing) + 5;
+            byte[] received = socket.getInputStream().readNBytes(length);
+            Assertions.assertEquals(length, received.length);
+            Assertions.assertTrue(new String(received, length - 7, 7).endsWith("\r\n0\r\n\r\n"));
+            Assertions.assertEquals(count, publisher.emitted.get());
+        }
+    }
+
+    @Test
+    public void contentLengthRemoved() throws IOException {
+        start(new TestPublisher(1, i -> ByteBuffer.wrap("a".getBytes()), false),
+                List.of(new Header("Content-Length", "1")), Duration.ofSeconds(60));
+        String expected = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n1\r\na\r\n0\r\n\r\n";
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(expected.getBytes(), socket.getInputStream().readNBytes(expected.length()));
+        }
+    }
+
+    @Test
+    public void unrequestedBufferCloses() throws IOException, InterruptedException {
+        UnrulyPublisher publisher = new UnrulyPublisher(2, 16 * 1_024 * 1_024); // first write outlasts socket buffers
+        start(publisher);
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertTrue(publisher.cancelled.await(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertTrue(logger.hasEventLog("stream_overflow"));
+    }
+
+    @Test
+    public void peerCloseCancelsStream() throws IOException, InterruptedException {
+        UnrulyPublisher publisher = new UnrulyPublisher(0, 0);
+        start(publisher);
+        String head = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n";
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            Assertions.assertArrayEquals(head.getBytes(), socket.getInputStream().readNBytes(head.length()));
+        }
+        Assertions.assertTrue(publisher.cancelled.await(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(logger.hasEventLog("stream_timeout"));
+    }
+
+    @Test
+    public void stalledStreamTimesOut() throws IOException, InterruptedException {
+        UnrulyPublisher publisher = new UnrulyPublisher(0, 0);
+        start(publisher, List.of(), Duration.ofMillis(250));
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            String received = new String(socket.getInputStream().readAllBytes());
+            Assertions.assertTrue(received.startsWith("HTTP/1.1 200 OK\r\n"));
+        }
+        Assertions.assertTrue(publisher.cancelled.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(logger.hasEventLog("stream_timeout"));
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+}
@@ -0,0 +1,191 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
+
+public class EventLoopTlsTest {
+
+    static final char[] PASSWORD = "changeit".toCharArray();
+
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    void start(boolean http2) throws IOException, GeneralSecurityException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withReadBufferSize(4_096) // smaller than a TLS record, so decrypted bytes are staged
+                .withHttp2(http2)
+                .withSslContext(serverContext())
+                .build();
+        logger = new TestLogger();
+        Handler handler = (req, callback) -> {
+            byte[] body = switch (req.uri()) {
+                case "/large" -> new byte[1_000_000];
+                case "/echo" -> req.body();
+                default -> (req.method() + " " + req.uri() + " " + req.version()).getBytes();
+            };
+            callback.accept(new Response(200, "OK", List.of(new Header("Content-Type", "text/plain")), body));
+        };
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    static KeyStore keyStore() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = EventLoopTlsTest.class.getResourceAsStream("/keystore.p12")) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+
+    static SSLContext serverContext() throws IOException, GeneralSecurityException {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore(), PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+        return context;
+    }
+
+    static SSLContext clientContext() throws IOException, GeneralSecurityException {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore());
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    SSLSocket connect(SSLContext context, String... protocols) throws IOException {
+        SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        if (protocols.length > 0) {
+            socket.setEnabledProtocols(protocols);
+        }
+        socket.startHandshake();
+        return socket;
+    }
+
+    static byte[] readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (!head.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n")) {
+            int b = in.read();
+            Assertions.assertTrue(b >= 0, "unexpected end of stream");
+            head.write(b);
+        }
+        String headers = head.toString(StandardCharsets.US_ASCII);
+        int start = headers.indexOf("Content-Length: ") + "Content-Length: ".length();
+        int length = Integer.parseInt(headers.substring(start, headers.indexOf("\r\n", start)));
+        return in.readNBytes(length);
+    }
+
+    @Test
+    public void requestOverTls() throws Exception {
+        start(false);
+        try (SSLSocket socket = connect(clientContext())) {
+            socket.getOutputStream().write("GET /file HTTP/1.1\r\n\r\n".getBytes());
+            Assertions.assertEquals("GET /file HTTP/1.1", new String(readResponse(socket.getInputStream())));
+        }
+        Assertions.assertTrue(logger.hasEventLog("tls_handshake"));
+    }
+
+    @Test
+    public void pipelinedRequests() throws Exception {
+        start(false);
+        try (SSLSocket socket = connect(clientContext())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /a HTTP/1.1\r\n\r\nGET /b HTTP/1.1\r\n\r\nGET /c HTTP/1.1\r\n\r\n".getBytes());
+            InputStream in = socket.getInputStream();
+            Assertions.assertEquals("GET /a HTTP/1.1", new String(readResponse(in)));
+            Assertions.assertEquals("GET /b HTTP/1.1", new String(readResponse(in)));
+            Assertions.assertEquals("GET /c HTTP/1.1", new String(readResponse(in)));
+        }
+    }
+
+    @Test
+    public void largeRequestAndResponse() throws Exception {
+        start(false);
+        byte[] body = new byte[200_000];
+        Arrays.fill(body, (byte) 'x');
+        try (SSLSocket socket = connect(clientContext())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            out.write(("POST /echo HTTP/1.1\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes());
+            out.write(body);
+            Assertions.assertArrayEquals(body, readResponse(in));
+            out.write("GET /large HTTP/1.1\r\n\r\n".getBytes());
+            Assertions.assertEquals(1_000_000, readResponse(in).length);
+        }
+    }
+
+    @Test
+    public void alpnSelectsHttp2() throws Exception {
+        start(true);
+        HttpClient client = HttpClient.newBuilder().sslContext(clientContext()).build();
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("https://localhost:" + eventLoop.getPort() + "/file")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+        Assertions.assertEquals("GET /file HTTP/2", response.body());
+    }
+
+    @Test
+    public void alpnSelectsHttp11WhenHttp2Disabled() throws Exception {
+        start(false);
+        HttpClient client = HttpClient.newBuilder().sslContext(clientContext()).build();
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("https://localhost:" + eventLoop.getPort() + "/file")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+        Assertions.assertEquals("GET /file HTTP/1.1", response.body());
+    }
+
+    @Test
+    public void sessionResumption() throws Exception {
+        start(false);
+        SSLContext context = clientContext();
+        byte[] first;
+        try (SSLSocket socket = connect(context, "TLSv1.2")) {
+            first = socket.getSession().getId();
+        }
+        try (SSLSocket socket = connect(context, "TLSv1.2")) {
+            Assertions.assertArrayEquals(first, socket.getSession().getId());
+        }
+    }
+
+    @Test
+    public void handshakeFailure() throws Exception {
+        start(false);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null); // default trust store rejects self-signed certificate
+        SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        try (socket) {
+            Assertions.assertThrows(IOException.class, socket::startHandshake);
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class EventLoopUnixSocketTest {
+
+    Path dir;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        dir = Files.createTempDirectory("microhttp");
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            for (Path path : paths.toList()) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    static EventLoop start(Options options) throws IOException {
+        Handler handler = (req, callback) -> callback.accept(new Response(
+                200, "OK", List.of(), (req.method() + " " + req.uri()).getBytes()));
+        EventLoop eventLoop = new EventLoop(options, new TestLogger(), handler);
+        eventLoop.start();
+        return eventLoop;
+    }
+
+    static String exchange(Path path, String request) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+            channel.write(ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII)));
+            ByteBuffer buffer = ByteBuffer.allocate(1_024);
+            while (channel.read(buffer) >= 0) {
+                if (buffer.position() > 0 && new String(buffer.array(), 0, buffer.position()).endsWith("GET /file")) {
+                    break;
+                }
+            }
+            return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Test
+    public void requestOverUnixSocket() throws Exception {
+        Path path = dir.resolve("http.sock");
+        EventLoop eventLoop = start(Options.builder()
+                .withUnixSocketPath(path)
+                .withUnixSocketPermissions(PosixFilePermissions.fromString("rw-rw----"))
+                .build());
+        try {
+            Assertions.assertEquals(-1, eventLoop.getPort());
+            Assertions.assertEquals("rw-rw----", PosixFilePermissions.toString(Files.getPosixFilePermissions(path)));
+            String response = exchange(path, "GET /file HTTP/1.1\r\n\r\n");
+            Assertions.assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+            Assertions.assertTrue(response.endsWith("\r\n\r\nGET /file"));
+        } finally {
+            eventLoop.stop();
+            eventLoop.join();
+        }
+        Assertions.assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void staleSocketReplaced() throws Exception {
+        Path path = dir.resolve("http.sock");
+        ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        stale.bind(UnixDomainSocketAddress.of(path));
+        stale.close(); // socket file remains, as after a crash
+        Assertions.assertTrue(Files.exists(path));
+        EventLoop eventLoop = start(Options.builder().withUnixSocketPath(path).build());
+        try {
+            Assertions.assertTrue(exchange(path, "GET /file HTTP/1.1\r\n\r\n").endsWith("GET /file"));
+        } finally {
+            eventLoop.stop();
+            eventLoop.join();
+        }
+    }
+
+    @Test
+    public void liveSocketNotReplaced() throws Exception {
+        Path path = dir.resolve("http.sock");
+        EventLoop eventLoop = start(Options.builder().withUnixSocketPath(path).build());
+        try {
+            Assertions.assertThrows(BindException.class, () -> new EventLoop(
+                    Options.builder().withUnixSocketPath(path).build(), (req, callback) -> {}));
+            Assertions.assertTrue(exchange(path, "GET /file HTTP/1.1\r\n\r\n").endsWith("GET /file"));
+        } finally {
+            eventLoop.stop();
+            eventLoop.join();
+        }
+    }
+
+    @Test
+    public void regularFileNotReplaced() throws Exception {
+        Path path = Files.writeString(dir.resolve("http.sock"), "data");
+        Assertions.assertThrows(IOException.class, () -> new EventLoop(
+                Options.builder().withUnixSocketPath(path).build(), (req, callback) -> {}));
+        Assertions.assertEquals("data", Files.readString(path));
+    }
+
+}
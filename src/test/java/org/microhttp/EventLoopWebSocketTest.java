@@ -0,0 +1,260 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class EventLoopWebSocketTest {
+
+    static final String UPGRADE_REQUEST = """
+            GET /chat HTTP/1.1\r
+            Host: localhost\r
+            Upgrade: websocket\r
+            Connection: keep-alive, Upgrade\r
+            Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r
+            Sec-WebSocket-Version: 13\r
+            \r
+            """;
+
+    static final String UPGRADE_RESPONSE = """
+            HTTP/1.1 101 Switching Protocols\r
+            Upgrade: websocket\r
+            Connection: Upgrade\r
+            Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r
+            \r
+            """;
+
+    static final String HTTP_RESPONSE = """
+            HTTP/1.1 200 OK\r
+            Content-Length: 0\r
+            \r
+            """;
+
+    TestLogger logger;
+    BlockingQueue<String> events;
+    EventLoop eventLoop;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        events = new LinkedBlockingQueue<>();
+        WebSocketHandler echo = new WebSocketHandler() {
+            @Override
+            public void onOpen(WebSocket webSocket) {
+                events.add("open " + webSocket.request().uri());
+            }
+
+            @Override
+            public void onText(WebSocket webSocket, String message) {
+                if (message.equals("bye")) {
+                    webSocket.close(1000, "done");
+                } else if (message.equals("long bye")) {
+                    try {
+                        webSocket.close(1005, "reserved");
+                    } catch (IllegalArgumentException e) {
+                        events.add("rejected 1005");
+                    }
+                    webSocket.close(1000, "\u00e9".repeat(100)); // 200 bytes of UTF-8
+                } else {
+                    webSocket.sendText(message);
+                }
+            }
+
+            @Override
+            public void onBinary(WebSocket webSocket, byte[] message) {
+                webSocket.sendBinary(message);
+            }
+
+            @Override
+            public void onClose(WebSocket webSocket, int code, String reason) {
+                events.add("close " + code + " " + reason);
+            }
+        };
+        Options options = Options.builder()
+                .withPort(0)
+                .withMaxRequestSize(4_096)
+                .build();
+        logger = new TestLogger();
+        Handler handler = (req, callback) -> callback.accept(req.path().equals("/chat")
+                ? Response.webSocket(req, echo)
+                : new Response(200, "OK", List.of(), new byte[0]));
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    static byte[] serverFrame(int first, byte[] payload) {
+        byte[] frame = new byte[2 + payload.length];
+        frame[0] = (byte) first;
+        frame[1] = (byte) payload.length;
+        System.arraycopy(payload, 0, frame, 2, payload.length);
+        return frame;
+    }
+
+    static void assertReceived(InputStream in, byte[] expected) throws IOException {
+        Assertions.assertArrayEquals(expected, in.readNBytes(expected.length));
+    }
+
+    Socket upgrade() throws IOException {
+        Socket socket = new Socket("localhost", eventLoop.getPort());
+        socket.setSoTimeout(5_000);
+        socket.getOutputStream().write(UPGRADE_REQUEST.getBytes());
+        assertReceived(socket.getInputStream(), UPGRADE_RESPONSE.getBytes());
+        return socket;
+    }
+
+    @Test
+    public void echoMessages() throws Exception {
+        try (Socket socket = upgrade()) {
+            Assertions.assertEquals("open /chat", events.poll(5, TimeUnit.SECONDS));
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x81, "hello".getBytes()));
+            assertReceived(socket.getInputStream(), serverFrame(0x81, "hello".getBytes()));
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x82, new byte[]{1, 2, 3}));
+            assertReceived(socket.getInputStream(), serverFrame(0x82, new byte[]{1, 2, 3}));
+        }
+        Assertions.assertEquals("close 1006 ", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fragmentedMessage() throws IOException {
+        try (Socket socket = upgrade()) {
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x01, "hel".getBytes()));
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x89, "ping".getBytes())); // interleaved control
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x80, "lo".getBytes()));
+            assertReceived(socket.getInputStream(), serverFrame(0x8A, "ping".getBytes()));
+            assertReceived(socket.getInputStream(), serverFrame(0x81, "hello".getBytes()));
+        }
+    }
+
+    @Test
+    public void framesWithUpgradeRequest() throws IOException {
+        try (Socket socket = new Socket("localhost", eventLoop.getPort())) {
+            socket.setSoTimeout(5_000);
+            byte[] frame = WebSocketFrameTest.clientFrame(0x81, "early".getBytes());
+            byte[] request = UPGRADE_REQUEST.getBytes();
+            byte[] both = new byte[request.length + frame.length];
+            System.arraycopy(request, 0, both, 0, request.length);
+            System.arraycopy(frame, 0, both, request.length, frame.length);
+            socket.getOutputStream().write(both);
+            assertReceived(socket.getInputStream(), UPGRADE_RESPONSE.getBytes());
+            assertReceived(socket.getInputStream(), serverFrame(0x81, "early".getBytes()));
+        }
+    }
+
+    @Test
+    public void clientInitiatedClose() throws Exception {
+        try (Socket socket = upgrade()) {
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x88, new byte[]{0x03, (byte) 0xE9}));
+            assertReceived(socket.getInputStream(), serverFrame(0x88, new byte[]{0x03, (byte) 0xE9}));
+            Assertions.assertEquals(-1, socket.getInputStream().read());
+        }
+        events.take(); // open
+        Assertions.assertEquals("close 1001 ", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void serverInitiatedClose() throws Exception {
+        try (Socket socket = upgrade()) {
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x81, "bye".getBytes()));
+            assertReceived(socket.getInputStream(), serverFrame(0x88, new byte[]{0x03, (byte) 0xE8, 'd', 'o', 'n', 'e'}));
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x88, new byte[]{0x03, (byte) 0xE8}));
+            Assertions.assertEquals(-1, socket.getInputStream().read());
+        }
+        events.take(); // open
+        Assertions.assertEquals("close 1000 ", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closeReasonTruncatedOnCharacterBoundary() throws Exception {
+        try (Socket socket = upgrade()) {
+            socket.getOutputStream().write(WebSocketFrameTest.clientFrame(0x81, "long bye".getBytes()));
+            InputStream in = socket.getInputStream();
+            Assertions.assertEquals(0x88, in.read());
+            int length = in.read();
+            Assertions.assertEquals(2 + 122, length); // 123 bytes would split a two-byte character
+            byte[] payload = in.readNBytes(length);
+            Assertions.assertEquals(1000, ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF));
+            Assertions.assertEquals("\u00e9".repeat(61), new String(payload, 2, length - 2, StandardCharsets.UTF_8));
+        }
+        events.take(); // open
+        Assertions.assertEquals("rejected 1005", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Status code of the next frame, which must be a close frame.
+     */
+    static int readCloseCode(InputStream in) throws IOException {
+        Assertions.assertEquals(0x88, in.read());
+        int length = in.read();
+        byte[] payload = in.readNBytes(length);
+        Assertions.assertEquals(length, payload.length);
+        return ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+    }
+
+    void assertClosedWith(byte[] clientBytes, int code) throws Exception {
+        try (Socket socket = upgrade()) {
+            socket.getOutputStream().write(clientBytes);
+            Assertions.assertEquals(code, readCloseCode(socket.getInputStream()));
+            Assertions.assertEquals(-1, socket.getInputStream().read());
+        }
+        events.take(); // open
+        Assertions.assertEquals("close " + code + " ", events.poll(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(logger.hasEventLog("websocket_error"));
+    }
+
+    @Test
+    public void protocolErrorCloses() throws Exception {
+        assertClosedWith(new byte[]{(byte) 0x81, 0x01, 'a'}, 1002); // unmasked
+    }
+
+    @Test
+    public void invalidUtf8Closes() throws Exception {
+        assertClosedWith(WebSocketFrameTest.clientFrame(0x81, new byte[]{'a', (byte) 0xC3, 0x28}), 1007);
+    }
+
+    @Test
+    public void invalidCloseCodeCloses() throws Exception {
+        assertClosedWith(WebSocketFrameTest.clientFrame(0x88, new byte[]{0x03, (byte) 0xED}), 1002); // 1005 reserved
+    }
+
+    @Test
+    public void oversizedMessageCloses() throws Exception {
+        assertClosedWith(WebSocketFrameTest.clientFrame(0x82, new byte[5_000]), 1009);
+    }
+
+    @Test
+    public void handlerDecidesUpgrade() throws IOException {
+        try (Socket socket = new Socket("localhost", eventLoop.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(UPGRADE_REQUEST.replace("/chat", "/other").getBytes());
+            assertReceived(socket.getInputStream(), HTTP_RESPONSE.getBytes()); // not upgraded
+            socket.getOutputStream().write("GET /chat HTTP/1.1\r\n\r\n".getBytes());
+            String badRequest = "HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n";
+            assertReceived(socket.getInputStream(), badRequest.getBytes());
+        }
+    }
+
+    @Test
+    public void plainRequestsUnaffected() throws IOException {
+        try (Socket socket = new Socket("localhost", eventLoop.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            assertReceived(socket.getInputStream(), HTTP_RESPONSE.getBytes());
+        }
+    }
+
+}
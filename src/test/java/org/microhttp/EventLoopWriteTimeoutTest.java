@@ -0,0 +1,105 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+
+public class EventLoopWriteTimeoutTest {
+
+    static final int RESPONSE_SIZE = 64 * 1_024 * 1_024;
+
+    TestLogger logger;
+    EventLoop eventLoop;
+
+    void start(Duration writeTimeout, int minWriteRate) throws IOException {
+        Options options = Options.builder()
+                .withPort(0)
+                .withConcurrency(1)
+                .withWriteTimeout(writeTimeout)
+                .withMinWriteRate(minWriteRate)
+                .build();
+        logger = new TestLogger();
+        byte[] body = new byte[RESPONSE_SIZE];
+        Handler handler = (req, callback) -> callback.accept(new Response(200, "OK", List.of(), body));
+        eventLoop = new EventLoop(options, logger, handler);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        eventLoop.stop();
+        eventLoop.join();
+    }
+
+    @Test
+    public void stalledReaderClosed() throws IOException, InterruptedException {
+        start(Duration.ofMillis(500), 0);
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            // never read, server write stalls once socket buffers are full
+            awaitEventLog("write_timeout");
+            assertClosed(socket.getInputStream());
+        }
+    }
+
+    @Test
+    public void slowReaderClosed() throws IOException, InterruptedException {
+        start(Duration.ofSeconds(60), 10 * 1_024 * 1_024);
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(EventLoopTest.HTTP11_REQUEST.getBytes());
+            InputStream inputStream = socket.getInputStream();
+            byte[] chunk = new byte[64 * 1_024];
+            long deadline = System.currentTimeMillis() + 10_000;
+            try {
+                while (!logger.hasEventLog("write_rate_close") && System.currentTimeMillis() < deadline) {
+                    if (inputStream.read(chunk) < 0) {
+                        break;
+                    }
+                    Thread.sleep(10); // well under 10 MB per second
+                }
+            } catch (SocketException e) {
+                // connection reset after close
+            }
+            awaitEventLog("write_rate_close");
+        }
+    }
+
+    Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4_096);
+        socket.setSoTimeout(5_000);
+        socket.connect(new InetSocketAddress("localhost", eventLoop.getPort()));
+        return socket;
+    }
+
+    static void assertClosed(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[64 * 1_024];
+        try {
+            int total = 0;
+            int n;
+            while ((n = inputStream.read(buffer)) >= 0) {
+                total += n;
+            }
+            Assertions.assertTrue(total < RESPONSE_SIZE);
+        } catch (SocketException e) {
+            Assertions.assertTrue(e.getMessage().contains("reset"));
+        }
+    }
+
+    void awaitEventLog(String event) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!logger.hasEventLog(event) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(logger.hasEventLog(event), event);
+    }
+
+}
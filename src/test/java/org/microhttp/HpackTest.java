@@ -0,0 +1,112 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.List;
+
+public class HpackTest {
+
+    static List<Header> decode(Hpack.Decoder decoder, String hex) {
+        return decoder.decode(HexFormat.of().parseHex(hex), Integer.MAX_VALUE);
+    }
+
+    static final List<Header> FIRST_REQUEST = List.of(
+            new Header(":method", "GET"),
+            new Header(":scheme", "http"),
+            new Header(":path", "/"),
+            new Header(":authority", "www.example.com"));
+
+    static final List<Header> SECOND_REQUEST = List.of(
+            new Header(":method", "GET"),
+            new Header(":scheme", "http"),
+            new Header(":path", "/"),
+            new Header(":authority", "www.example.com"),
+            new Header("cache-control", "no-cache"));
+
+    static final List<Header> THIRD_REQUEST = List.of(
+            new Header(":method", "GET"),
+            new Header(":scheme", "https"),
+            new Header(":path", "/index.html"),
+            new Header(":authority", "www.example.com"),
+            new Header("custom-key", "custom-value"));
+
+    @Test
+    public void requestsWithoutHuffman() { // RFC 7541 Appendix C.3
+        Hpack.Decoder decoder = new Hpack.Decoder();
+        Assertions.assertEquals(FIRST_REQUEST, decode(decoder, "828684410f7777772e6578616d706c652e636f6d"));
+        Assertions.assertEquals(57, decoder.tableSize());
+        Assertions.assertEquals(SECOND_REQUEST, decode(decoder, "828684be58086e6f2d6361636865"));
+        Assertions.assertEquals(110, decoder.tableSize());
+        Assertions.assertEquals(THIRD_REQUEST, decode(decoder, "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"));
+        Assertions.assertEquals(164, decoder.tableSize());
+    }
+
+    @Test
+    public void requestsWithHuffman() { // RFC 7541 Appendix C.4
+        Hpack.Decoder decoder = new Hpack.Decoder();
+        Assertions.assertEquals(FIRST_REQUEST, decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+        Assertions.assertEquals(SECOND_REQUEST, decode(decoder, "828684be5886a8eb10649cbf"));
+        Assertions.assertEquals(THIRD_REQUEST, decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+        Assertions.assertEquals(164, decoder.tableSize());
+    }
+
+    @Test
+    public void eviction() { // RFC 7541 Appendix C.5, preceded by a table size update to 256
+        Hpack.Decoder decoder = new Hpack.Decoder();
+        Assertions.assertEquals(List.of(
+                        new Header(":status", "302"),
+                        new Header("cache-control", "private"),
+                        new Header("date", "Mon, 21 Oct 2013 20:13:21 GMT"),
+                        new Header("location", "https://www.example.com")),
+                decode(decoder, "3fe101" + "4803333032580770726976617465611d4d6f6e2c203231204f637420323031332032303a31333a323120474d546e1768747470733a2f2f7777772e6578616d706c652e636f6d"));
+        Assertions.assertEquals(222, decoder.tableSize());
+        Assertions.assertEquals(List.of(
+                        new Header(":status", "307"),
+                        new Header("cache-control", "private"),
+                        new Header("date", "Mon, 21 Oct 2013 20:13:21 GMT"),
+                        new Header("location", "https://www.example.com")),
+                decode(decoder, "4803333037c1c0bf"));
+        Assertions.assertEquals(222, decoder.tableSize());
+    }
+
+    @Test
+    public void encodeDecode() {
+        List<Header> headers = List.of(
+                new Header(":status", "200"),
+                new Header(":status", "201"),
+                new Header("Content-Type", "text/plain"),
+                new Header("x-custom", "a".repeat(300)));
+        byte[] block = Hpack.encode(headers);
+        Assertions.assertEquals((byte) 0x88, block[0]); // static table match
+        Hpack.Decoder decoder = new Hpack.Decoder();
+        Assertions.assertEquals(List.of(
+                        new Header(":status", "200"),
+                        new Header(":status", "201"),
+                        new Header("content-type", "text/plain"),
+                        new Header("x-custom", "a".repeat(300))),
+                decoder.decode(block, Integer.MAX_VALUE));
+        Assertions.assertEquals(0, decoder.tableSize());
+    }
+
+    @Test
+    public void rejectInvalidBlocks() {
+        Assertions.assertThrows(Http2Exception.class, () -> decode(new Hpack.Decoder(), "80")); // index zero
+        Assertions.assertThrows(Http2Exception.class, () -> decode(new Hpack.Decoder(), "be")); // empty dynamic table
+        Assertions.assertThrows(Http2Exception.class, () -> decode(new Hpack.Decoder(), "410f7777")); // truncated
+        Assertions.assertThrows(Http2Exception.class, () -> decode(new Hpack.Decoder(), "82" + "3fe101")); // late update
+        Assertions.assertThrows(Http2Exception.class, () -> decode(new Hpack.Decoder(), "418cf1e3c2e5f23a6ba0ab90f4fe")); // padding
+    }
+
+    @Test
+    public void headerListLimit() {
+        // one literal entry referenced repeatedly expands far beyond the size of the block
+        String block = "400178" + "0a" + "61".repeat(10) + "be".repeat(100);
+        Hpack.Decoder decoder = new Hpack.Decoder();
+        Assertions.assertEquals(101, decoder.decode(HexFormat.of().parseHex(block), 101 * 43).size());
+        Assertions.assertThrows(Http2Exception.class,
+                () -> new Hpack.Decoder().decode(HexFormat.of().parseHex(block), 100 * 43));
+    }
+
+}
@@ -191,6 +191,20 @@ public class RequestParserTest {
         assertEquals(expectedResult, parser.request());
     }
 
+    @ParameterizedTest
+    @MethodSource("requestArgsProvider")
+    public void attachedRequests(byte[] requestToParse, Request expectedResult) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(requestToParse.length);
+        buffer.put(requestToParse).flip();
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        tokenizer.attach(buffer);
+        RequestParser parser = new RequestParser(tokenizer);
+        Assertions.assertTrue(parser.parse());
+        tokenizer.detach();
+        assertEquals(expectedResult, parser.request());
+        Assertions.assertEquals(0, tokenizer.capacity());
+    }
+
     @ParameterizedTest
     @MethodSource("requestArgsProvider")
     public void partialRequests(byte[] requestToParse, Request expectedResult) {
@@ -205,6 +219,20 @@ public class RequestParserTest {
         assertEquals(expectedResult, parser.request());
     }
 
+    @Test
+    public void headerSize() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        RequestParser parser = new RequestParser(tokenizer);
+        tokenizer.add(ByteBuffer.wrap("POST /file HTTP/1.1\r\nContent-Length: 11\r\n".getBytes()));
+        Assertions.assertFalse(parser.parse());
+        Assertions.assertFalse(parser.headersParsed());
+        Assertions.assertEquals(41, parser.headerSize());
+        tokenizer.add(ByteBuffer.wrap("\r\nhello".getBytes()));
+        Assertions.assertFalse(parser.parse());
+        Assertions.assertTrue(parser.headersParsed());
+        Assertions.assertEquals(43, parser.headerSize());
+    }
+
     @ParameterizedTest
     @MethodSource("invalidRequestArgsProvider")
     public void invalidRequests(byte[] requestToParse) {
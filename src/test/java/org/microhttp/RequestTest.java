@@ -0,0 +1,67 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class RequestTest {
+
+    static Request get(String uri) {
+        return new Request("GET", uri, "HTTP/1.1", List.of(), new byte[0]);
+    }
+
+    @Test
+    public void pathWithoutQuery() {
+        Request request = get("/files/report.pdf");
+        Assertions.assertSame(request.uri(), request.rawPath());
+        Assertions.assertSame(request.uri(), request.path());
+        Assertions.assertNull(request.rawQuery());
+        Assertions.assertNull(request.queryParam("a"));
+        Assertions.assertEquals(List.of(), request.queryParams("a"));
+    }
+
+    @Test
+    public void percentDecodedPath() {
+        Request request = get("/files/annual%20report%E2%82%AC+x.pdf?download");
+        Assertions.assertEquals("/files/annual%20report%E2%82%AC+x.pdf", request.rawPath());
+        Assertions.assertEquals("/files/annual report€+x.pdf", request.path());
+        Assertions.assertEquals("download", request.rawQuery());
+    }
+
+    @Test
+    public void malformedEscapesRetained() {
+        Assertions.assertEquals("/100%/a%zz/%4", get("/100%/a%zz/%4").path());
+    }
+
+    @Test
+    public void queryParams() {
+        Request request = get("/search?q=hello+world&tag=a&tag=b%26c&empty=&flag&caf%C3%A9=1#top");
+        Assertions.assertEquals("q=hello+world&tag=a&tag=b%26c&empty=&flag&caf%C3%A9=1", request.rawQuery());
+        Assertions.assertEquals("hello world", request.queryParam("q"));
+        Assertions.assertEquals("a", request.queryParam("tag"));
+        Assertions.assertEquals(List.of("a", "b&c"), request.queryParams("tag"));
+        Assertions.assertEquals("", request.queryParam("empty"));
+        Assertions.assertEquals("", request.queryParam("flag"));
+        Assertions.assertEquals("1", request.queryParam("café"));
+        Assertions.assertNull(request.queryParam("top"));
+        Assertions.assertNull(request.queryParam("missing"));
+    }
+
+    @Test
+    public void emptyQuery() {
+        Request request = get("/a?");
+        Assertions.assertEquals("/a", request.path());
+        Assertions.assertEquals("", request.rawQuery());
+        Assertions.assertNull(request.queryParam("a"));
+    }
+
+    @Test
+    public void fragmentWithoutQuery() {
+        Request request = get("/a#b?c=1");
+        Assertions.assertEquals("/a", request.path());
+        Assertions.assertNull(request.rawQuery());
+        Assertions.assertNull(request.queryParam("c"));
+    }
+
+}
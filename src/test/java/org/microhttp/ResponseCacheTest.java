@@ -0,0 +1,112 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+public class ResponseCacheTest {
+
+    static final String HTTP_1_1 = "HTTP/1.1";
+
+    static Request get(String uri, Header... headers) {
+        return new Request("GET", uri, HTTP_1_1, List.of(headers), new byte[0]);
+    }
+
+    @Test
+    public void getMethodOnly() {
+        ResponseCache cache = new ResponseCache(1_024, Duration.ofSeconds(1));
+        Assertions.assertNotNull(cache.key(null, get("/a"), HTTP_1_1, false, null));
+        Assertions.assertNull(cache.key(null, new Request("POST", "/a", HTTP_1_1, List.of(), new byte[0]), HTTP_1_1, false, null));
+    }
+
+    @Test
+    public void hitsAndMisses() {
+        ResponseCache cache = new ResponseCache(1_024, Duration.ofSeconds(1));
+        ResponseCache.Key key = cache.key(null, get("/a"), HTTP_1_1, false, null);
+        Assertions.assertNull(cache.get(key, 0));
+        cache.put(key, "abc".getBytes(), 0);
+        Assertions.assertArrayEquals("abc".getBytes(), cache.get(key, 1));
+        Assertions.assertNull(cache.get(cache.key(null, get("/a"), "HTTP/1.0", false, null), 1));
+        Assertions.assertEquals(1, cache.hits());
+        Assertions.assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void expiry() {
+        long ttl = Duration.ofSeconds(1).toNanos();
+        ResponseCache cache = new ResponseCache(1_024, Duration.ofNanos(ttl));
+        ResponseCache.Key key = cache.key(null, get("/a"), HTTP_1_1, false, null);
+        cache.put(key, "abc".getBytes(), 0);
+        Assertions.assertNotNull(cache.get(key, ttl - 1));
+        Assertions.assertNull(cache.get(key, ttl));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        ResponseCache cache = new ResponseCache(6, Duration.ofSeconds(1));
+        ResponseCache.Key a = cache.key(null, get("/a"), HTTP_1_1, false, null);
+        ResponseCache.Key b = cache.key(null, get("/b"), HTTP_1_1, false, null);
+        ResponseCache.Key c = cache.key(null, get("/c"), HTTP_1_1, false, null);
+        cache.put(a, "aaa".getBytes(), 0);
+        cache.put(b, "bbb".getBytes(), 0);
+        cache.get(a, 0); // b is now least recently used
+        cache.put(c, "ccc".getBytes(), 0);
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(6, cache.bytes());
+        Assertions.assertNotNull(cache.get(a, 0));
+        Assertions.assertNull(cache.get(b, 0));
+        Assertions.assertNotNull(cache.get(c, 0));
+        cache.put(a, "too large".getBytes(), 0);
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void varyHeaders() {
+        ResponseCache cache = new ResponseCache(1_024, Duration.ofSeconds(1), "Accept-Encoding");
+        ResponseCache.Key plain = cache.key(null, get("/a"), HTTP_1_1, false, null);
+        ResponseCache.Key gzip = cache.key(null, get("/a", new Header("accept-encoding", "gzip")), HTTP_1_1, false, null);
+        ResponseCache.Key other = cache.key(null, get("/a", new Header("Accept", "text/plain")), HTTP_1_1, false, null);
+        Assertions.assertNotEquals(plain, gzip);
+        Assertions.assertEquals(plain, other);
+    }
+
+    @Test
+    public void cacheable() {
+        ResponseCache cache = new ResponseCache(1_024, Duration.ofSeconds(1));
+        Assertions.assertTrue(cache.cacheable(new Response(200, "OK", List.of(), new byte[0]), false));
+        Assertions.assertFalse(cache.cacheable(new Response(404, "Not Found", List.of(), new byte[0]), false));
+        Assertions.assertFalse(cache.cacheable(new Response(200, "OK",
+                List.of(new Header("Cache-Control", "no-store")), new byte[0]), false));
+        Assertions.assertFalse(cache.cacheable(new Response(200, "OK",
+                List.of(new Header("cache-control", "Private, max-age=60")), new byte[0]), false));
+        Assertions.assertFalse(cache.cacheable(new Response(200, "OK",
+                List.of(new Header("Set-Cookie", "session=1")), new byte[0]), false));
+    }
+
+    @Test
+    public void credentialedRequestsNotKeyed() {
+        ResponseCache cache = new ResponseCache(1_024, Duration.ofSeconds(1));
+        Assertions.assertNull(cache.key(null, get("/a", new Header("Authorization", "Bearer x")), HTTP_1_1, false, null));
+        Assertions.assertNull(cache.key(null, get("/a", new Header("cookie", "session=1")), HTTP_1_1, false, null));
+        Assertions.assertNotNull(cache.key(null, get("/a"), HTTP_1_1, false, null));
+    }
+
+    @Test
+    public void varyResponses() {
+        ResponseCache cache = new ResponseCache(1_024, Duration.ofSeconds(1), "Accept-Language");
+        Assertions.assertTrue(cache.cacheable(vary("accept-language"), false));
+        Assertions.assertFalse(cache.cacheable(vary("Accept-Language, Accept"), false));
+        Assertions.assertFalse(cache.cacheable(vary("*"), true));
+        Assertions.assertFalse(cache.cacheable(vary("Accept-Encoding"), false));
+        Assertions.assertTrue(cache.cacheable(vary("Accept-Encoding, Accept-Language"), true));
+    }
+
+    static Response vary(String value) {
+        return new Response(200, "OK", List.of(new Header("Vary", value)), new byte[0]);
+    }
+
+}
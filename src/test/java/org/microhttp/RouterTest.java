@@ -0,0 +1,133 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RouterTest {
+
+    static RouteHandler respond(String name) {
+        return (req, params, context, callback) -> {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < params.size(); i++) {
+                values.add(params.name(i) + "=" + params.value(i));
+            }
+            callback.accept(new Response(200, "OK", List.of(), (name + " " + values).getBytes()));
+        };
+    }
+
+    static Response dispatch(Router router, String method, String uri) {
+        AtomicReference<Response> response = new AtomicReference<>();
+        router.handle(new Request(method, uri, "HTTP/1.1", List.of(), new byte[0]), response::set);
+        return response.get();
+    }
+
+    static String body(Router router, String method, String uri) {
+        Response response = dispatch(router, method, uri);
+        return response.status() == 200 ? new String(response.body()) : Integer.toString(response.status());
+    }
+
+    @Test
+    public void literalRoutes() {
+        Router router = new Router()
+                .route("GET", "/", respond("root"))
+                .route("GET", "/users", respond("users"))
+                .route("GET", "/users/new", respond("new"));
+        Assertions.assertEquals("root []", body(router, "GET", "/"));
+        Assertions.assertEquals("users []", body(router, "GET", "/users"));
+        Assertions.assertEquals("users []", body(router, "GET", "/users?page=2"));
+        Assertions.assertEquals("new []", body(router, "GET", "/users/new"));
+        Assertions.assertEquals("404", body(router, "GET", "/user"));
+        Assertions.assertEquals("404", body(router, "GET", "/users/"));
+    }
+
+    @Test
+    public void parameters() {
+        Router router = new Router()
+                .route("GET", "/users/new", respond("new"))
+                .route("GET", "/users/{id}", respond("user"))
+                .route("GET", "/users/{id}/posts/{post}", respond("post"))
+                .route("GET", "/users/{id}/nested", respond("nested"));
+        Assertions.assertEquals("new []", body(router, "GET", "/users/new"));
+        Assertions.assertEquals("user [id=42]", body(router, "GET", "/users/42"));
+        Assertions.assertEquals("user [id=newer]", body(router, "GET", "/users/newer"));
+        Assertions.assertEquals("post [id=7, post=abc]", body(router, "GET", "/users/7/posts/abc?x=1"));
+        Assertions.assertEquals("nested [id=new]", body(router, "GET", "/users/new/nested"));
+        Assertions.assertEquals("404", body(router, "GET", "/users//posts/abc"));
+    }
+
+    @Test
+    public void wildcard() {
+        Router router = new Router()
+                .route("GET", "/static/*", respond("static"))
+                .route("GET", "/static/index.html", respond("index"))
+                .route("GET", "/files/{dir}/*", respond("files"));
+        Assertions.assertEquals("index []", body(router, "GET", "/static/index.html"));
+        Assertions.assertEquals("static [*=css/site.css]", body(router, "GET", "/static/css/site.css"));
+        Assertions.assertEquals("static [*=index.htm]", body(router, "GET", "/static/index.htm"));
+        Assertions.assertEquals("static [*=]", body(router, "GET", "/static/"));
+        Assertions.assertEquals("files [dir=a, *=b/c]", body(router, "GET", "/files/a/b/c"));
+        Assertions.assertEquals("404", body(router, "GET", "/static"));
+    }
+
+    @Test
+    public void namedLookup() {
+        AtomicReference<PathParams> captured = new AtomicReference<>();
+        Router router = new Router().route("GET", "/orgs/{org}/repos/{repo}", (req, params, context, callback) -> {
+            captured.set(params);
+            callback.accept(new Response(200, "OK", List.of(), new byte[0]));
+        });
+        dispatch(router, "GET", "/orgs/acme/repos/widgets");
+        Assertions.assertEquals("acme", captured.get().get("org"));
+        Assertions.assertEquals("widgets", captured.get().get("repo"));
+        Assertions.assertNull(captured.get().get("missing"));
+    }
+
+    @Test
+    public void methodNotAllowed() {
+        Router router = new Router()
+                .route("GET", "/items/{id}", respond("get"))
+                .route("DELETE", "/items/{id}", respond("delete"));
+        Assertions.assertEquals("delete [id=1]", body(router, "DELETE", "/items/1"));
+        Response response = dispatch(router, "POST", "/items/1");
+        Assertions.assertEquals(405, response.status());
+        Assertions.assertEquals(List.of(new Header("Allow", "DELETE, GET")), response.headers());
+    }
+
+    @Test
+    public void fallback() {
+        Router router = new Router((req, callback) -> callback.accept(new Response(200, "OK", List.of(), "fallback".getBytes())))
+                .route("GET", "/a", respond("a"));
+        Assertions.assertEquals("fallback", body(router, "GET", "/b"));
+    }
+
+    @Test
+    public void manyRoutes() {
+        Router router = new Router();
+        for (int i = 0; i < 500; i++) {
+            router.route("GET", "/api/v1/resource" + i + "/{id}", respond("r" + i));
+        }
+        Assertions.assertEquals("r0 [id=x]", body(router, "GET", "/api/v1/resource0/x"));
+        Assertions.assertEquals("r499 [id=y]", body(router, "GET", "/api/v1/resource499/y"));
+        Assertions.assertEquals("404", body(router, "GET", "/api/v1/resource500/y"));
+    }
+
+    @Test
+    public void malformedPatterns() {
+        Router router = new Router();
+        RouteHandler handler = respond("x");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "users", handler));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "/users/{}", handler));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "/users/{id", handler));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "/users/{id}x", handler));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "/users/a{id}", handler));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "/{id}/{id}", handler));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "/static/*/x", handler));
+        router.route("GET", "/users", handler);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.route("GET", "/users", handler));
+    }
+
+}
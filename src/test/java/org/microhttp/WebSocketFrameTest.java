@@ -0,0 +1,118 @@
+package org.microhttp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+public class WebSocketFrameTest {
+
+    static final byte[] KEY = {0x37, (byte) 0xfa, 0x21, 0x3d};
+
+    static byte[] maskBytewise(byte[] data, byte[] key) {
+        byte[] result = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = (byte) (data[i] ^ key[i % 4]);
+        }
+        return result;
+    }
+
+    static byte[] clientFrame(int first, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(14 + payload.length);
+        frame.put((byte) first);
+        if (payload.length <= 125) {
+            frame.put((byte) (0x80 | payload.length));
+        } else if (payload.length <= 0xFFFF) {
+            frame.put((byte) (0x80 | 126)).putShort((short) payload.length);
+        } else {
+            frame.put((byte) (0x80 | 127)).putLong(payload.length);
+        }
+        frame.put(KEY).put(maskBytewise(payload, KEY)).flip();
+        byte[] result = new byte[frame.remaining()];
+        frame.get(result);
+        return result;
+    }
+
+    @Test
+    public void maskMatchesBytewise() {
+        byte[] data = "The quick brown fox jumps over the lazy dog".getBytes();
+        byte[] expected = maskBytewise(data, KEY);
+        for (ByteBuffer buffer : List.of(
+                ByteBuffer.allocate(data.length + 3),
+                ByteBuffer.allocateDirect(data.length + 3),
+                ByteBuffer.allocateDirect(data.length + 3).order(ByteOrder.LITTLE_ENDIAN))) {
+            buffer.position(3);
+            buffer.put(data);
+            WebSocketFrame.mask(buffer, 3, data.length, KEY);
+            Assertions.assertEquals(data.length + 3, buffer.position()); // absolute access only
+            byte[] masked = new byte[data.length];
+            buffer.get(3, masked);
+            Assertions.assertArrayEquals(expected, masked);
+        }
+    }
+
+    @Test
+    public void encodeLengths() {
+        BufferPool pool = new BufferPool(0);
+        for (int length : new int[]{0, 125, 126, 0xFFFF, 0x10000}) {
+            ByteBuffer frame = WebSocketFrame.encode(WebSocketFrame.BINARY, new byte[length], pool);
+            int header = length <= 125 ? 2 : length <= 0xFFFF ? 4 : 10;
+            Assertions.assertEquals(header + length, frame.remaining());
+            Assertions.assertEquals((byte) 0x82, frame.get(0));
+        }
+    }
+
+    @Test
+    public void parseFrames() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        byte[] large = new byte[300];
+        large[299] = 7;
+        tokenizer.add(ByteBuffer.wrap(clientFrame(0x01, "hello".getBytes())));
+        byte[] second = clientFrame(0x82, large);
+        tokenizer.add(ByteBuffer.wrap(second, 0, 10)); // partial frame
+
+        WebSocketParser parser = new WebSocketParser(tokenizer, 1_024);
+        Assertions.assertTrue(parser.parse());
+        WebSocketFrame frame = parser.frame();
+        Assertions.assertFalse(frame.fin());
+        Assertions.assertEquals(WebSocketFrame.TEXT, frame.opcode());
+        Assertions.assertArrayEquals("hello".getBytes(), frame.payload());
+
+        parser = new WebSocketParser(tokenizer, 1_024);
+        Assertions.assertFalse(parser.parse());
+        tokenizer.add(ByteBuffer.wrap(second, 10, second.length - 10));
+        Assertions.assertTrue(parser.parse());
+        frame = parser.frame();
+        Assertions.assertTrue(frame.fin());
+        Assertions.assertEquals(WebSocketFrame.BINARY, frame.opcode());
+        Assertions.assertArrayEquals(large, frame.payload());
+    }
+
+    @Test
+    public void rejectInvalidFrames() {
+        ByteTokenizer unmasked = new ByteTokenizer();
+        unmasked.add(ByteBuffer.wrap(new byte[]{(byte) 0x81, 0x01, 'a'}));
+        WebSocketException e = Assertions.assertThrows(WebSocketException.class,
+                () -> new WebSocketParser(unmasked, 1_024).parse());
+        Assertions.assertEquals(WebSocketException.PROTOCOL_ERROR, e.closeCode);
+
+        ByteTokenizer oversized = new ByteTokenizer();
+        oversized.add(ByteBuffer.wrap(clientFrame(0x82, new byte[2_048])));
+        e = Assertions.assertThrows(WebSocketException.class, () -> new WebSocketParser(oversized, 1_024).parse());
+        Assertions.assertEquals(WebSocketException.MESSAGE_TOO_BIG, e.closeCode);
+
+        ByteTokenizer fragmentedPing = new ByteTokenizer();
+        fragmentedPing.add(ByteBuffer.wrap(clientFrame(0x09, new byte[0])));
+        e = Assertions.assertThrows(WebSocketException.class, () -> new WebSocketParser(fragmentedPing, 1_024).parse());
+        Assertions.assertEquals(WebSocketException.PROTOCOL_ERROR, e.closeCode);
+    }
+
+    @Test
+    public void handshakeAccept() {
+        // example from RFC 6455 section 1.3
+        Assertions.assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketHandshake.accept("dGhlIHNhbXBsZSBub25jZQ=="));
+    }
+
+}